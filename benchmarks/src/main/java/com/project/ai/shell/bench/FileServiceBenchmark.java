@@ -0,0 +1,97 @@
+package com.project.ai.shell.bench;
+
+import com.project.ai.shell.service.FileService;
+import com.project.ai.shell.service.IgnoreMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileService hot paths on trees of 1k, 100k and 1M files. The index is built once per trial (periodic
+ * rescans off); the cost of building it is what the startup of a FileService pays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FileServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int files;
+
+    private FileService fileService;
+    private IgnoreMatcher ignoreMatcher;
+    private Path root;
+    private List<String> paths;
+    private String content;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = SyntheticTree.create(files);
+        paths = SyntheticTree.relativePaths(files);
+        System.setProperty("project.path", root.toString());
+        fileService = new FileService(0, Duration.ZERO, 1024 * 1024, DataSize.ofMegabytes(64), false);
+        ignoreMatcher = IgnoreMatcher.load(root);
+        content = "x".repeat(4096);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fileService.close();
+    }
+
+    @Benchmark
+    public List<String> listAllFiles() throws IOException {
+        return fileService.listAllFiles();
+    }
+
+    @Benchmark
+    public List<String> searchFiles() throws IOException {
+        return fileService.searchFiles("Type1*7.java");
+    }
+
+    /**
+     * A random file each time: mostly cache misses on the large trees, hits on the small one
+     */
+    @Benchmark
+    public String readFile() throws IOException {
+        return fileService.readFile(randomPath());
+    }
+
+    @Benchmark
+    public void writeFile() throws IOException {
+        fileService.writeFile("bench/Scratch.txt", content);
+    }
+
+    /**
+     * The ignore check the watcher runs per event (shouldIncludeFile before the ignore rules were split out)
+     */
+    @Benchmark
+    public boolean shouldIncludeFile() {
+        return ignoreMatcher.includes(root.resolve(randomPath()));
+    }
+
+    private String randomPath() {
+        return paths.get(ThreadLocalRandom.current().nextInt(paths.size()));
+    }
+}
@@ -0,0 +1,28 @@
+package com.project.ai.shell.bench;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.List;
+
+/**
+ * A chat model that answers every prompt with the same tool calls, so tool execution can be measured
+ * without a network round trip
+ */
+final class StubChatModel implements ChatModel {
+
+    private final List<AssistantMessage.ToolCall> toolCalls;
+
+    StubChatModel(List<AssistantMessage.ToolCall> toolCalls) {
+        this.toolCalls = toolCalls;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        AssistantMessage message = AssistantMessage.builder().content("").toolCalls(toolCalls).build();
+        return new ChatResponse(List.of(new Generation(message)));
+    }
+}
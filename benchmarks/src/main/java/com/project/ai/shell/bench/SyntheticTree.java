@@ -0,0 +1,87 @@
+package com.project.ai.shell.bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Project trees of a given size for the benchmarks: Java sources in packages of 100 files, some ignored
+ * directories (target/, node_modules/) and a .gitignore. Trees are kept under target/trees and reused by
+ * later runs, since the 1M file tree takes minutes to write.
+ */
+final class SyntheticTree {
+
+    static final int FILES_PER_DIRECTORY = 100;
+
+    private static final Path BASE = Paths.get(System.getProperty("bench.trees", "target/trees"));
+
+    private SyntheticTree() {
+    }
+
+    /**
+     * Root of a tree with this many included files, created if missing
+     */
+    static Path create(int files) {
+        Path root = BASE.resolve("tree-" + files).toAbsolutePath().normalize();
+        Path complete = root.resolve(".complete");
+        if (Files.exists(complete)) {
+            return root;
+        }
+        try {
+            Files.createDirectories(root);
+            Files.writeString(root.resolve(".gitignore"), "*.log\nbuild/\n/generated/\n!keep.log\n");
+            for (int i = 0; i < files; i++) {
+                Path file = root.resolve(relativePath(i));
+                if (i % FILES_PER_DIRECTORY == 0) {
+                    Files.createDirectories(file.getParent());
+                }
+                Files.writeString(file, source(i));
+            }
+            // Left out of the index, so the walker has something to prune
+            for (String ignored : List.of("target/classes", "node_modules/lib", "build", "generated")) {
+                Path dir = Files.createDirectories(root.resolve(ignored));
+                for (int i = 0; i < FILES_PER_DIRECTORY; i++) {
+                    Files.writeString(dir.resolve("Ignored" + i + ".txt"), "ignored");
+                }
+            }
+            Files.createFile(complete);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return root;
+    }
+
+    /**
+     * Relative path of the i-th generated file
+     */
+    static String relativePath(int i) {
+        int dir = i / FILES_PER_DIRECTORY;
+        return "src/main/java/com/example/p" + dir / 100 + "/q" + dir % 100 + "/Type" + i + ".java";
+    }
+
+    /**
+     * Relative paths of every generated file, in creation order
+     */
+    static List<String> relativePaths(int files) {
+        List<String> paths = new ArrayList<>(files);
+        for (int i = 0; i < files; i++) {
+            paths.add(relativePath(i));
+        }
+        return paths;
+    }
+
+    private static String source(int i) {
+        int dir = i / FILES_PER_DIRECTORY;
+        return "package com.example.p" + dir / 100 + ".q" + dir % 100 + ";\n\n"
+                + "public class Type" + i + " {\n\n"
+                + "    private final int value = " + i + ";\n\n"
+                + "    public int value() {\n"
+                + "        return value;\n"
+                + "    }\n"
+                + "}\n";
+    }
+}
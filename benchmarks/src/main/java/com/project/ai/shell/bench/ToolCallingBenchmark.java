@@ -0,0 +1,127 @@
+package com.project.ai.shell.bench;
+
+import com.project.ai.shell.service.FileService;
+import com.project.ai.shell.session.SessionRegistry;
+import com.project.ai.shell.tool.FileTools;
+import com.project.ai.shell.tool.ParallelToolCallingManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.DefaultToolCallingManager;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The tool path of an ask, with the model replaced by {@link StubChatModel}: JSON arguments in, FileTools call,
+ * result serialized back, for one callback and for a whole model turn of several calls.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ToolCallingBenchmark {
+
+    private static final int FILES = 1000;
+    private static final int CALLS_PER_TURN = 8;
+
+    private FileService fileService;
+    private ExecutorService executor;
+    private ToolCallback multiFileRetrieval;
+    private String multiFileArguments;
+    private ToolContext toolContext;
+    private StubChatModel chatModel;
+    private Prompt prompt;
+    private ToolCallingManager sequential;
+    private ToolCallingManager parallel;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        System.setProperty("project.path", SyntheticTree.create(FILES).toString());
+        fileService = new FileService(0, Duration.ZERO, 1024 * 1024, DataSize.ofMegabytes(64), false);
+        // No chat memory: sessions are never closed here
+        SessionRegistry sessions = new SessionRegistry(fileService, null, Duration.ofHours(1), 10);
+        // Tool calls only resolve sessions that were opened, like the shell does at startup
+        sessions.open(SessionRegistry.DEFAULT_SESSION);
+        ToolCallback[] callbacks = ToolCallbacks.from(new FileTools(sessions));
+        Map<String, Object> context = Map.of(SessionRegistry.SESSION_ID, SessionRegistry.DEFAULT_SESSION);
+
+        multiFileRetrieval = Arrays.stream(callbacks)
+                .filter(callback -> callback.getToolDefinition().name().equals("multiFileRetrievalTool"))
+                .findFirst()
+                .orElseThrow();
+        multiFileArguments = SyntheticTree.relativePaths(CALLS_PER_TURN).stream()
+                .map(path -> "\"" + path + "\"")
+                .collect(Collectors.joining(",", "{\"relativePaths\":[", "]}"));
+        toolContext = new ToolContext(context);
+
+        List<AssistantMessage.ToolCall> calls = new ArrayList<>();
+        for (int i = 0; i < CALLS_PER_TURN; i++) {
+            calls.add(new AssistantMessage.ToolCall("call-" + i, "function", "fileRetrievalTool",
+                    "{\"relativePath\":\"" + SyntheticTree.relativePath(i * 97) + "\"}"));
+        }
+        chatModel = new StubChatModel(calls);
+        prompt = new Prompt(List.of(new UserMessage("Explain these files")), ToolCallingChatOptions.builder()
+                .toolCallbacks(callbacks)
+                .toolContext(context)
+                .internalToolExecutionEnabled(false)
+                .build());
+
+        sequential = DefaultToolCallingManager.builder().build();
+        executor = Executors.newFixedThreadPool(CALLS_PER_TURN);
+        parallel = new ParallelToolCallingManager(DefaultToolCallingManager.builder().build(), executor);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        fileService.close();
+    }
+
+    @Benchmark
+    public String multiFileRetrievalCallback() {
+        return multiFileRetrieval.call(multiFileArguments, toolContext);
+    }
+
+    @Benchmark
+    public ToolExecutionResult modelTurnSequential() {
+        ChatResponse response = chatModel.call(prompt);
+        return sequential.executeToolCalls(prompt, response);
+    }
+
+    @Benchmark
+    public ToolExecutionResult modelTurnParallel() {
+        ChatResponse response = chatModel.call(prompt);
+        return parallel.executeToolCalls(prompt, response);
+    }
+}
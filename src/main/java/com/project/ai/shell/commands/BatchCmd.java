@@ -0,0 +1,169 @@
+package com.project.ai.shell.commands;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.project.ai.shell.service.AskService;
+import com.project.ai.shell.session.SessionRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many asks from a JSONL file (the format of requests.jsonl: request_id, title, body; or id and prompt),
+ * a bounded number at a time. Every job gets its own conversation on the default project root, so they share
+ * the file index, caches and symbol index; results are appended as JSONL in completion order.
+ * <p>
+ * Headless: {@code java -jar shell.jar --spring.profiles.active=batch batch --file jobs.jsonl}
+ */
+@ShellComponent
+@Slf4j
+public class BatchCmd {
+
+    private record Job(String id, String prompt, String error) {
+    }
+
+    private final AskService askService;
+    private final SessionRegistry sessions;
+    private final int defaultParallelism;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public BatchCmd(@Lazy AskService askService, @Lazy SessionRegistry sessions,
+                    @Value("${shell.batch.parallelism:4}") int defaultParallelism) {
+        this.askService = askService;
+        this.sessions = sessions;
+        this.defaultParallelism = defaultParallelism;
+    }
+
+    @ShellMethod(value = "Run ask jobs from a JSONL file concurrently and write the results as JSONL")
+    public String batch(@ShellOption(help = "JSONL file, one job per line: request_id with title/body, or id with prompt") String file,
+                        @ShellOption(defaultValue = "", help = "results file, default <file>.results.jsonl") String output,
+                        @ShellOption(defaultValue = "0", help = "jobs running at once, 0 = shell.batch.parallelism") int parallelism,
+                        @ShellOption(defaultValue = "false", help = "fail the command (non-zero exit when headless) if any job fails") boolean failOnError)
+            throws IOException {
+        Path input = Paths.get(file);
+        Path results = output.isBlank() ? Paths.get(file + ".results.jsonl") : Paths.get(output);
+        List<Job> jobs = readJobs(input);
+        int threads = Math.max(1, Math.min(jobs.size(), parallelism > 0 ? parallelism : defaultParallelism));
+
+        long start = System.nanoTime();
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "batch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (BufferedWriter writer = Files.newBufferedWriter(results, StandardCharsets.UTF_8)) {
+            List<CompletableFuture<Void>> running = new ArrayList<>();
+            for (Job job : jobs) {
+                running.add(CompletableFuture.runAsync(() -> {
+                    ObjectNode result = run(job);
+                    if (!"ok".equals(result.get("status").asText())) {
+                        failed.incrementAndGet();
+                    }
+                    write(writer, result);
+                    log.info("Batch job {} {} ({}/{})", job.id(), result.get("status").asText(),
+                            done.incrementAndGet(), jobs.size());
+                }, pool));
+            }
+            CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        String summary = String.format("%d jobs, %d failed, in %d s on %d threads; results in %s", jobs.size(),
+                failed.get(), (System.nanoTime() - start) / 1_000_000_000, threads, results);
+        if (failOnError && failed.get() > 0) {
+            throw new IllegalStateException(summary);
+        }
+        return summary;
+    }
+
+    private List<Job> readJobs(Path input) throws IOException {
+        List<Job> jobs = new ArrayList<>();
+        List<String> lines = Files.readAllLines(input, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty()) {
+                continue;
+            }
+            String fallbackId = "line-" + (i + 1);
+            try {
+                JsonNode node = objectMapper.readTree(line);
+                String id = text(node, "request_id", text(node, "id", fallbackId));
+                String prompt = text(node, "prompt", null);
+                if (prompt == null) {
+                    String title = text(node, "title", "");
+                    String body = text(node, "body", "");
+                    prompt = title.isEmpty() || body.isEmpty() ? title + body : title + "\n\n" + body;
+                }
+                jobs.add(prompt.isBlank() ? new Job(id, null, "no prompt, title or body") : new Job(id, prompt, null));
+            } catch (IOException e) {
+                jobs.add(new Job(fallbackId, null, "invalid JSON: " + e.getMessage()));
+            }
+        }
+        return jobs;
+    }
+
+    private static String text(JsonNode node, String field, String fallback) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? fallback : value.asText();
+    }
+
+    private ObjectNode run(Job job) {
+        ObjectNode result = objectMapper.createObjectNode().put("request_id", job.id());
+        if (job.error() != null) {
+            return result.put("status", "error").put("error", job.error());
+        }
+        // One conversation per job and run, closed afterwards; the project root (and its indexes) is shared. A
+        // UUID rather than the clock, so duplicate ids in one file or two runs in the same millisecond never share
+        // a conversation, and stored conversations of earlier runs are not picked up again (the registry hashes the
+        // long id to a conversation id that fits the memory table)
+        String sessionId = "batch-" + job.id() + "-" + UUID.randomUUID();
+        long start = System.nanoTime();
+        try {
+            String answer = askService.call(job.prompt(), sessions.open(sessionId));
+            result.put("status", "ok").put("answer", answer);
+        } catch (RuntimeException e) {
+            log.warn("Batch job {} failed: {}", job.id(), e.getMessage());
+            result.put("status", "error").put("error", String.valueOf(e.getMessage()));
+        } finally {
+            sessions.close(sessionId);
+        }
+        return result.put("elapsed_ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void write(BufferedWriter writer, ObjectNode result) {
+        try {
+            String line = objectMapper.writeValueAsString(result);
+            synchronized (writer) {
+                writer.write(line);
+                writer.newLine();
+                // Flushed per job, so a killed CI run keeps the results it has
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.project.ai.shell.commands;
+
+import com.project.ai.shell.records.FileChanges;
+import com.project.ai.shell.service.TrackedFileSyncService;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+
+import java.io.IOException;
+
+@ShellComponent
+public class IndexCmd {
+
+    private final TrackedFileSyncService trackedFileSyncService;
+
+    public IndexCmd(@Lazy TrackedFileSyncService trackedFileSyncService) {
+        this.trackedFileSyncService = trackedFileSyncService;
+    }
+
+    @ShellMethod(value = "Sync tracked files with the project and re-index what changed")
+    public String sync() throws IOException {
+        FileChanges changes = trackedFileSyncService.sync();
+        return String.format("%d added, %d modified, %d deleted",
+                changes.added().size(), changes.modified().size(), changes.deleted().size());
+    }
+}
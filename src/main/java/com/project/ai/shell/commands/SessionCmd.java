@@ -0,0 +1,41 @@
+package com.project.ai.shell.commands;
+
+import com.project.ai.shell.session.Session;
+import com.project.ai.shell.session.SessionRegistry;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import java.io.IOException;
+import java.util.stream.Collectors;
+
+@ShellComponent
+public class SessionCmd {
+
+    private final SessionRegistry sessions;
+
+    public SessionCmd(@Lazy SessionRegistry sessions) {
+        this.sessions = sessions;
+    }
+
+    @ShellMethod(key = "session-open", value = "Open a session with its own conversation, optionally on another project root")
+    public String open(@ShellOption String id,
+                       @ShellOption(defaultValue = ShellOption.NULL, help = "project root(s), comma separated; default is project.path") String root)
+            throws IOException {
+        Session session = sessions.open(id, root);
+        return "Session " + session.getId() + " on " + session.getFileService().getProjectRoot();
+    }
+
+    @ShellMethod(key = "session-list", value = "List open sessions")
+    public String list() {
+        return sessions.list().stream()
+                .map(session -> session.getId() + "  " + session.getFileService().getProjectRoot())
+                .collect(Collectors.joining("\n"));
+    }
+
+    @ShellMethod(key = "session-close", value = "Close a session")
+    public String close(@ShellOption String id) {
+        return sessions.close(id) ? "Closed " + id : "No session " + id;
+    }
+}
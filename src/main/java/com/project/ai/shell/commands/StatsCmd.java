@@ -0,0 +1,75 @@
+package com.project.ai.shell.commands;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.search.Search;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@ShellComponent
+public class StatsCmd {
+
+    private static final String PREFIX = "shell.";
+
+    private final MeterRegistry registry;
+
+    public StatsCmd(@Lazy MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @ShellMethod(value = "Show model, tool, file and cache metrics of this run")
+    public String stats(@ShellOption(defaultValue = "", help = "only meters whose name starts with shell.<filter>") String filter) {
+        StringBuilder out = new StringBuilder();
+        registry.getMeters().stream()
+                .filter(meter -> meter.getId().getName().startsWith(PREFIX + filter))
+                .sorted(Comparator.comparing((Meter meter) -> meter.getId().getName())
+                        .thenComparing(meter -> meter.getId().getTags().toString()))
+                .forEach(meter -> out.append(format(meter)).append('\n'));
+
+        // Caches count hits and misses as one meter with a result tag
+        Map<String, double[]> caches = new TreeMap<>();
+        Search.in(registry).tagKeys("result").meters().stream()
+                .filter(meter -> meter.getId().getName().startsWith(PREFIX + filter))
+                .forEach(meter -> {
+                    double[] counts = caches.computeIfAbsent(meter.getId().getName(), name -> new double[2]);
+                    counts["hit".equals(meter.getId().getTag("result")) ? 0 : 1] += value(meter);
+                });
+        caches.forEach((name, counts) -> {
+            double total = counts[0] + counts[1];
+            if (total > 0) {
+                out.append(String.format("%s hit rate  %.1f%%%n", name, 100 * counts[0] / total));
+            }
+        });
+        return out.length() == 0 ? "No metrics yet" : out.toString().stripTrailing();
+    }
+
+    private static String format(Meter meter) {
+        String tags = meter.getId().getTags().stream()
+                .map(Tag::getValue)
+                .collect(Collectors.joining(",", "[", "]"));
+        String name = meter.getId().getName() + (tags.equals("[]") ? "" : tags);
+        if (meter instanceof Timer timer) {
+            return String.format("%-45s count=%d mean=%.1fms max=%.1fms", name, timer.count(),
+                    timer.mean(TimeUnit.MILLISECONDS), timer.max(TimeUnit.MILLISECONDS));
+        }
+        return String.format("%-45s %.0f", name, value(meter));
+    }
+
+    private static double value(Meter meter) {
+        double value = 0;
+        for (var measurement : meter.measure()) {
+            value += measurement.getValue();
+        }
+        return value;
+    }
+}
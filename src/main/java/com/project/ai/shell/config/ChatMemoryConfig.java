@@ -1,34 +1,50 @@
 package com.project.ai.shell.config;
 
+import com.project.ai.shell.memory.TokenBudgetChatMemory;
+import com.project.ai.shell.memory.WriteBehindChatMemoryRepository;
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.memory.ChatMemoryRepository;
 import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
-import org.springframework.ai.chat.memory.MessageWindowChatMemory;
-import org.springframework.ai.chat.memory.repository.jdbc.JdbcChatMemoryRepository;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
 
 
 
 @Configuration
 public class ChatMemoryConfig {
 
+    @Value("${shell.memory.max-tokens:8000}")
+    private int maxTokens;
+
+    /**
+     * Replaces the auto-configured JdbcChatMemoryRepository, which rewrites the whole window on every turn
+     */
+    @Bean
+    public WriteBehindChatMemoryRepository chatMemoryRepository(JdbcTemplate jdbcTemplate,
+                                                               TransactionTemplate transactionTemplate,
+                                                               @Value("${shell.memory.flush-interval:PT1S}") Duration flushInterval,
+                                                               @Value("${shell.memory.max-pending:10000}") int maxPending,
+                                                               @Value("${shell.memory.max-flush-attempts:5}") int maxAttempts,
+                                                               @Value("${shell.memory.dead-letter-file:${user.home}/.cache/shell/chat-memory-dead-letter.jsonl}") Path deadLetterFile) {
+        return new WriteBehindChatMemoryRepository(jdbcTemplate, transactionTemplate, flushInterval, maxPending, maxAttempts, deadLetterFile);
+    }
+
     @Bean("JdbcChatMemory")
-    public ChatMemory jdbcChatMemory(JdbcChatMemoryRepository repository) {
-        return MessageWindowChatMemory.builder()
-                .chatMemoryRepository(repository)
-                .maxMessages(100)
-                .build();
+    public ChatMemory jdbcChatMemory(WriteBehindChatMemoryRepository repository) {
+        return new TokenBudgetChatMemory(repository, maxTokens);
     }
 
 
     @Bean("inMemoryChatMemory")
     public ChatMemory inMemoryChatMemory() {
         ChatMemoryRepository repository = new InMemoryChatMemoryRepository();
-        return MessageWindowChatMemory.builder()
-                .chatMemoryRepository(repository)
-                .maxMessages(100)
-                .build();
+        return new TokenBudgetChatMemory(repository, maxTokens);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package com.project.ai.shell.config;
+
+import com.project.ai.shell.llm.ResilientChatModel;
+import org.springframework.ai.google.genai.GoogleGenAiChatModel;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+
+@Configuration
+public class ChatModelConfig {
+
+    /**
+     * Primary, so the auto-configured ChatClient.Builder and everything taking a ChatModel go through it; it
+     * runs the tool loop with the (parallel) tool calling manager
+     */
+    @Bean
+    @Primary
+    public ResilientChatModel resilientChatModel(GoogleGenAiChatModel model,
+                                                 ToolCallingManager toolCallingManager,
+                                                 @Value("${shell.llm.timeout:PT2M}") Duration timeout,
+                                                 @Value("${shell.llm.first-token-timeout:PT30S}") Duration firstTokenTimeout,
+                                                 @Value("${shell.llm.idle-timeout:PT30S}") Duration idleTimeout,
+                                                 @Value("${shell.llm.retry.max-attempts:3}") int maxAttempts,
+                                                 @Value("${shell.llm.retry.backoff:PT0.5S}") Duration backoff,
+                                                 @Value("${shell.llm.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                                                 @Value("${shell.llm.circuit-breaker.open-duration:PT30S}") Duration openDuration,
+                                                 @Value("${shell.llm.hedge.enabled:true}") boolean hedge,
+                                                 @Value("${shell.llm.hedge.delay:PT3S}") Duration hedgeDelay) {
+        return new ResilientChatModel(model, toolCallingManager, new ResilientChatModel.Settings(timeout, firstTokenTimeout, idleTimeout,
+                maxAttempts, backoff, failureThreshold, openDuration, hedge, hedgeDelay));
+    }
+}
@@ -0,0 +1,67 @@
+package com.project.ai.shell.config;
+
+import com.project.ai.shell.service.FileService;
+import com.project.ai.shell.vector.CachingEmbeddingModel;
+import com.project.ai.shell.web.AskLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Meters over counters the services already keep (file I/O, cache statistics, API admission), read when
+ * the registry is scraped rather than updated on every operation
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder fileServiceMetrics(FileService fileService) {
+        return registry -> {
+            FunctionCounter.builder("shell.files.read", fileService, FileService::bytesRead)
+                    .baseUnit("bytes")
+                    .register(registry);
+            FunctionCounter.builder("shell.files.written", fileService, FileService::bytesWritten)
+                    .baseUnit("bytes")
+                    .register(registry);
+            FunctionCounter.builder("shell.files.cache", fileService, service -> service.contentCacheStats().hits())
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("shell.files.cache", fileService, service -> service.contentCacheStats().misses())
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("shell.files.cache.evictions", fileService, service -> service.contentCacheStats().evictions())
+                    .register(registry);
+            Gauge.builder("shell.files.cache.size", fileService, service -> service.contentCacheStats().bytes())
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder embeddingCacheMetrics(ObjectProvider<EmbeddingModel> embeddingModels) {
+        return registry -> embeddingModels.orderedStream()
+                .filter(CachingEmbeddingModel.class::isInstance)
+                .map(CachingEmbeddingModel.class::cast)
+                .findFirst()
+                .ifPresent(model -> {
+                    FunctionCounter.builder("shell.embedding.cache", model, CachingEmbeddingModel::hits)
+                            .tag("result", "hit")
+                            .register(registry);
+                    FunctionCounter.builder("shell.embedding.cache", model, CachingEmbeddingModel::misses)
+                            .tag("result", "miss")
+                            .register(registry);
+                });
+    }
+
+    @Bean
+    public MeterBinder askLimiterMetrics(AskLimiter limiter) {
+        return registry -> {
+            Gauge.builder("shell.api.asks.running", limiter, AskLimiter::running).register(registry);
+            Gauge.builder("shell.api.asks.queued", limiter, AskLimiter::queued).register(registry);
+        };
+    }
+}
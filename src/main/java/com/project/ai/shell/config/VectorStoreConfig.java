@@ -0,0 +1,63 @@
+package com.project.ai.shell.config;
+
+import com.project.ai.shell.service.FileService;
+import com.project.ai.shell.vector.CachingEmbeddingModel;
+import com.project.ai.shell.vector.LocalVectorStore;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+@Configuration
+public class VectorStoreConfig {
+
+    /**
+     * Wraps every embedding model in an on-disk cache, so the same text is never sent for embedding twice
+     */
+    @Bean
+    public static BeanPostProcessor embeddingCachePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (!(bean instanceof EmbeddingModel model) || bean instanceof CachingEmbeddingModel
+                        || !environment.getProperty("shell.embedding.cache.enabled", Boolean.class, true)) {
+                    return bean;
+                }
+                Path cacheFile = Path.of(environment.getProperty("shell.embedding.cache.file",
+                        System.getProperty("user.home") + "/.cache/shell/embeddings.bin"));
+                // Part of every cache key, so changing the model or its dimensions starts from an empty cache
+                String modelId = environment.getProperty("spring.ai.google.genai.embedding.text.options.model", "default")
+                        + "/" + environment.getProperty("spring.ai.google.genai.embedding.text.options.dimensions", "default");
+                try {
+                    return new CachingEmbeddingModel(model, cacheFile, modelId);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not open embedding cache " + cacheFile, e);
+                }
+            }
+        };
+    }
+
+    /**
+     * In-process vector store, used instead of MongoDB Atlas when spring.ai.vectorstore.type=local
+     */
+    @Bean
+    @ConditionalOnProperty(name = "spring.ai.vectorstore.type", havingValue = "local")
+    public LocalVectorStore localVectorStore(EmbeddingModel embeddingModel,
+                                             FileService fileService,
+                                             @Value("${shell.vectorstore.local.directory:}") String directory,
+                                             @Value("${shell.vectorstore.local.train-threshold:10000}") int trainThreshold,
+                                             @Value("${shell.vectorstore.local.nprobe:8}") int nprobe) throws IOException {
+        Path path = directory.isBlank()
+                ? fileService.getProjectRoot().resolve(".shell").resolve("vectors")
+                : Path.of(directory);
+        return new LocalVectorStore(embeddingModel, path, trainThreshold, nprobe);
+    }
+}
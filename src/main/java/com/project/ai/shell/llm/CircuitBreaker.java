@@ -0,0 +1,66 @@
+package com.project.ai.shell.llm;
+
+import java.time.Duration;
+
+/**
+ * Opens after failureThreshold failed calls in a row and rejects calls for openDuration. After that one trial
+ * call is let through (half open); its success closes the breaker, its failure opens it again. A trial that
+ * never reports back (a cancelled stream) is replaced by another after openDuration.
+ */
+public class CircuitBreaker {
+
+    public static class OpenException extends RuntimeException {
+        OpenException(String message) {
+            super(message);
+        }
+    }
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long changedAt;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Let a call through or throw {@link OpenException}
+     */
+    public synchronized void acquire() {
+        if (state == State.CLOSED) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - changedAt < openNanos) {
+            throw new OpenException(state == State.OPEN
+                    ? "Model unavailable after " + failures + " failures in a row, retrying in "
+                    + Duration.ofNanos(openNanos - (now - changedAt)).toSeconds() + " s"
+                    : "Model unavailable, a trial call is in progress");
+        }
+        state = State.HALF_OPEN;
+        changedAt = now;
+    }
+
+    public synchronized void success() {
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    public synchronized void failure() {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            changedAt = System.nanoTime();
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
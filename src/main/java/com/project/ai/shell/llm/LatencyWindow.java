@@ -0,0 +1,35 @@
+package com.project.ai.shell.llm;
+
+import java.util.Arrays;
+
+/**
+ * The last few latencies of successful calls, for picking the hedge delay
+ */
+class LatencyWindow {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+    }
+
+    /**
+     * The given percentile (0..1) in nanos, or -1 while there are fewer than minSamples samples
+     */
+    synchronized long percentile(double percentile, int minSamples) {
+        if (size < Math.max(1, minSamples)) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        return sorted[Math.max(0, Math.min(size - 1, (int) Math.ceil(percentile * size) - 1))];
+    }
+}
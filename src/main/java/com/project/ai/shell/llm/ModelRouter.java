@@ -0,0 +1,41 @@
+package com.project.ai.shell.llm;
+
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Picks the model per request: asks go to the cheap model unless the question itself is long, file
+ * generation goes to the larger one. A blank model name leaves the configured default in place.
+ */
+@Component
+public class ModelRouter {
+
+    private final String simpleModel;
+    private final String heavyModel;
+    private final int heavyQueryChars;
+
+    public ModelRouter(@Value("${shell.llm.models.simple:}") String simpleModel,
+                       @Value("${shell.llm.models.heavy:}") String heavyModel,
+                       @Value("${shell.llm.models.heavy-query-chars:2000}") int heavyQueryChars) {
+        this.simpleModel = simpleModel;
+        this.heavyModel = heavyModel;
+        this.heavyQueryChars = heavyQueryChars;
+    }
+
+    public ChatOptions forQuery(String query) {
+        return options(query.length() > heavyQueryChars ? heavyModel : simpleModel);
+    }
+
+    public ChatOptions forGeneration() {
+        return options(heavyModel);
+    }
+
+    // ToolCallingChatOptions, so the client still attaches the tool callbacks
+    private static ChatOptions options(String model) {
+        return ToolCallingChatOptions.builder()
+                .model(model == null || model.isBlank() ? null : model)
+                .build();
+    }
+}
@@ -0,0 +1,249 @@
+package com.project.ai.shell.llm;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Puts deadlines, retries, a circuit breaker and hedging in front of a chat model.
+ * <p>
+ * The delegate never runs tools itself (internal tool execution is switched off on every prompt); this class
+ * drives the tool loop through the {@link ToolCallingManager} instead, so everything below applies to each
+ * model round trip on its own and never to tool execution. A tool call runs exactly once, however often the
+ * request around it is retried or hedged.
+ * <ul>
+ *     <li>call: each round trip must finish within timeout; stream: the first chunk within first-token-timeout
+ *     and every next one within idle-timeout. A round trip that times out is cancelled (its thread interrupted)</li>
+ *     <li>transient failures (timeouts, I/O, 429/5xx) are retried with jittered exponential backoff; a stream
+ *     only until it has emitted something, so no chunk is ever repeated</li>
+ *     <li>a second request is fired when the first has not answered after the p95 latency of recent calls
+ *     (hedge-delay until there are enough samples), and the first answer wins</li>
+ *     <li>only transient failures count against the circuit breaker; a rejected prompt says nothing about the
+ *     health of the model</li>
+ * </ul>
+ */
+@Slf4j
+public class ResilientChatModel implements ChatModel {
+
+    private static final int MIN_HEDGE_SAMPLES = 20;
+    private static final double HEDGE_PERCENTILE = 0.95;
+
+    public record Settings(Duration timeout, Duration firstTokenTimeout, Duration idleTimeout,
+                           int maxAttempts, Duration backoff,
+                           int failureThreshold, Duration openDuration,
+                           boolean hedge, Duration hedgeDelay) {
+    }
+
+    private final ChatModel delegate;
+    private final ToolCallingManager toolCallingManager;
+    private final Settings settings;
+    private final CircuitBreaker breaker;
+    private final LatencyWindow callLatencies = new LatencyWindow(100);
+    private final LatencyWindow firstChunkLatencies = new LatencyWindow(100);
+
+    public ResilientChatModel(ChatModel delegate, ToolCallingManager toolCallingManager, Settings settings) {
+        this.delegate = delegate;
+        this.toolCallingManager = toolCallingManager;
+        this.settings = settings;
+        this.breaker = new CircuitBreaker(settings.failureThreshold(), settings.openDuration());
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        boolean runTools = runsTools(prompt);
+        Prompt current = withoutInternalToolExecution(prompt);
+        while (true) {
+            ChatResponse response = callOnce(current);
+            if (!runTools || !response.hasToolCalls()) {
+                return response;
+            }
+            ToolExecutionResult result = toolCallingManager.executeToolCalls(current, response);
+            if (result.returnDirect()) {
+                return ChatResponse.builder().from(response).generations(ToolExecutionResult.buildGenerations(result)).build();
+            }
+            current = new Prompt(result.conversationHistory(), current.getOptions());
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        boolean runTools = runsTools(prompt);
+        return streamWithTools(withoutInternalToolExecution(prompt), runTools);
+    }
+
+    private Flux<ChatResponse> streamWithTools(Prompt prompt, boolean runTools) {
+        return streamOnce(prompt).concatMap(response -> {
+            if (!runTools || !response.hasToolCalls()) {
+                return Flux.just(response);
+            }
+            // Tools block (file I/O, nested generations), so they run off the model's I/O threads
+            return Flux.defer(() -> {
+                ToolExecutionResult result = toolCallingManager.executeToolCalls(prompt, response);
+                if (result.returnDirect()) {
+                    return Flux.just(ChatResponse.builder().from(response).generations(ToolExecutionResult.buildGenerations(result)).build());
+                }
+                return streamWithTools(new Prompt(result.conversationHistory(), prompt.getOptions()), true);
+            }).subscribeOn(Schedulers.boundedElastic());
+        });
+    }
+
+    /**
+     * One model round trip with deadline, retries, hedging and the breaker
+     */
+    private ChatResponse callOnce(Prompt prompt) {
+        breaker.acquire();
+        Mono<ChatResponse> attempt = Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    return Mono.fromCallable(() -> delegate.call(prompt))
+                            .doOnNext(response -> callLatencies.record(System.nanoTime() - start));
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .timeout(settings.timeout());
+        if (settings.hedge()) {
+            Duration delay = hedgeDelay(callLatencies);
+            attempt = Mono.firstWithValue(attempt, Mono.delay(delay).then(attempt));
+        }
+
+        try {
+            ChatResponse response = attempt.retryWhen(retry(() -> true)).block();
+            breaker.success();
+            return response;
+        } catch (RuntimeException e) {
+            recordFailure(e);
+            throw translate(Exceptions.unwrap(e));
+        }
+    }
+
+    private Flux<ChatResponse> streamOnce(Prompt prompt) {
+        return Flux.defer(() -> {
+            breaker.acquire();
+            AtomicBoolean emitted = new AtomicBoolean();
+            Flux<ChatResponse> attempt = Flux.defer(() -> {
+                        long start = System.nanoTime();
+                        AtomicBoolean first = new AtomicBoolean(true);
+                        return delegate.stream(prompt).doOnNext(response -> {
+                            if (first.compareAndSet(true, false)) {
+                                firstChunkLatencies.record(System.nanoTime() - start);
+                            }
+                        });
+                    })
+                    .timeout(Mono.delay(settings.firstTokenTimeout()), chunk -> Mono.delay(settings.idleTimeout()));
+            if (settings.hedge()) {
+                Duration delay = hedgeDelay(firstChunkLatencies);
+                attempt = Flux.firstWithValue(attempt, Mono.delay(delay).thenMany(attempt));
+            }
+            return attempt
+                    .doOnNext(response -> emitted.set(true))
+                    .retryWhen(retry(() -> !emitted.get()))
+                    .doOnComplete(breaker::success)
+                    .doOnError(this::recordFailure)
+                    .onErrorMap(ResilientChatModel::translate);
+        });
+    }
+
+    private void recordFailure(Throwable error) {
+        if (retryable(error)) {
+            breaker.failure();
+        } else {
+            // The model answered, just not to our liking: it is up
+            breaker.success();
+        }
+    }
+
+    /**
+     * Whether the caller expects tool calls to be executed (the default) rather than returned
+     */
+    private static boolean runsTools(Prompt prompt) {
+        return prompt.getOptions() instanceof ToolCallingChatOptions options
+                && ToolCallingChatOptions.isInternalToolExecutionEnabled(options);
+    }
+
+    /**
+     * A copy of the prompt whose options keep the delegate from running tool calls itself
+     */
+    private static Prompt withoutInternalToolExecution(Prompt prompt) {
+        if (!(prompt.getOptions() instanceof ToolCallingChatOptions options)) {
+            return prompt;
+        }
+        ToolCallingChatOptions copy = options.copy();
+        copy.setInternalToolExecutionEnabled(false);
+        return new Prompt(prompt.getInstructions(), copy);
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+
+    private RetryBackoffSpec retry(BooleanSupplier allowed) {
+        return Retry.backoff(Math.max(0, settings.maxAttempts() - 1), settings.backoff())
+                .jitter(0.5)
+                .filter(e -> allowed.getAsBoolean() && retryable(e))
+                .doBeforeRetry(signal -> log.warn("Model call failed ({}), retry {} of {}",
+                        rootCause(signal.failure()).toString(), signal.totalRetries() + 1, settings.maxAttempts() - 1))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    private Duration hedgeDelay(LatencyWindow latencies) {
+        long p95 = latencies.percentile(HEDGE_PERCENTILE, MIN_HEDGE_SAMPLES);
+        return p95 < 0 ? settings.hedgeDelay() : Duration.ofNanos(p95);
+    }
+
+    static boolean retryable(Throwable error) {
+        if (rootCause(error) instanceof CircuitBreaker.OpenException) {
+            return false;
+        }
+        for (Throwable cause = rootCause(error); cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof IOException) {
+                return true;
+            }
+            // The GenAI client reports HTTP failures as ServerException (5xx) and ClientException (4xx)
+            String message = String.valueOf(cause.getMessage());
+            if (cause.getClass().getSimpleName().equals("ServerException")
+                    || message.contains("429")
+                    || message.contains("RESOURCE_EXHAUSTED")
+                    || message.contains("UNAVAILABLE")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The failure that matters: hedged pairs that both fail report NoSuchElementException with the real
+     * errors suppressed
+     */
+    private static Throwable rootCause(Throwable error) {
+        Throwable cause = Exceptions.unwrap(error);
+        if (cause instanceof NoSuchElementException && cause.getSuppressed().length > 0) {
+            cause = cause.getSuppressed()[0];
+        }
+        return cause;
+    }
+
+    private static RuntimeException translate(Throwable error) {
+        Throwable cause = rootCause(error);
+        if (cause instanceof TimeoutException) {
+            return new IllegalStateException("Model did not answer in time", cause);
+        }
+        return cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause.getMessage(), cause);
+    }
+}
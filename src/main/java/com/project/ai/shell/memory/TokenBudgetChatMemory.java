@@ -0,0 +1,148 @@
+package com.project.ai.shell.memory;
+
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ChatMemory} that keeps the newest messages fitting in a token budget instead of a fixed message count.
+ * <p>
+ * Tokens are estimated at four characters each, which is close enough for Gemini on code and English. The kept
+ * window always starts at a user message, so a tool call is never separated from its response. The latest
+ * system message and the latest user message are always kept; when the latest turn alone is over budget its
+ * user message is truncated and only its newest tool exchanges are kept.
+ */
+public class TokenBudgetChatMemory implements ChatMemory {
+
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int TOKENS_PER_MESSAGE = 4;
+
+    private final ChatMemoryRepository repository;
+    private final int maxTokens;
+
+    public TokenBudgetChatMemory(ChatMemoryRepository repository, int maxTokens) {
+        this.repository = repository;
+        this.maxTokens = maxTokens;
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        List<Message> all = new ArrayList<>(repository.findByConversationId(conversationId));
+        all.addAll(messages);
+        repository.saveAll(conversationId, trim(all));
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        return repository.findByConversationId(conversationId);
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        repository.deleteByConversationId(conversationId);
+    }
+
+    List<Message> trim(List<Message> messages) {
+        SystemMessage system = null;
+        List<Message> conversation = new ArrayList<>();
+        for (Message message : messages) {
+            if (message instanceof SystemMessage systemMessage) {
+                system = systemMessage;
+            } else {
+                conversation.add(message);
+            }
+        }
+
+        int available = maxTokens - (system == null ? 0 : estimateTokens(system));
+        int budget = available;
+        int from = conversation.size();
+        while (from > 0 && budget - estimateTokens(conversation.get(from - 1)) >= 0) {
+            budget -= estimateTokens(conversation.get(--from));
+        }
+        int lastUser = conversation.size() - 1;
+        while (lastUser >= 0 && conversation.get(lastUser).getMessageType() != MessageType.USER) {
+            lastUser--;
+        }
+
+        List<Message> kept = new ArrayList<>();
+        if (system != null) {
+            kept.add(system);
+        }
+        if (lastUser >= 0 && from > lastUser) {
+            kept.addAll(latestTurn(conversation.subList(lastUser, conversation.size()), available));
+            return kept;
+        }
+        MessageType start = lastUser >= 0 ? MessageType.USER : MessageType.ASSISTANT;
+        while (from < conversation.size() && conversation.get(from).getMessageType() != start) {
+            from++;
+        }
+        kept.addAll(conversation.subList(from, conversation.size()));
+        return kept;
+    }
+
+    /**
+     * Fit a turn (a user message and what followed it) that is over budget on its own: the newest exchange is
+     * always kept, older ones while they fit, and the user message gets at least a quarter of the budget
+     */
+    private List<Message> latestTurn(List<Message> turn, int budget) {
+        List<List<Message>> exchanges = new ArrayList<>();
+        for (int i = 1; i < turn.size(); i++) {
+            Message message = turn.get(i);
+            if (message instanceof AssistantMessage assistant && assistant.hasToolCalls()
+                    && i + 1 < turn.size() && turn.get(i + 1) instanceof ToolResponseMessage) {
+                exchanges.add(List.of(message, turn.get(++i)));
+            } else if (!(message instanceof ToolResponseMessage)) {
+                exchanges.add(List.of(message));
+            }
+        }
+
+        Message user = turn.get(0);
+        int userReserve = Math.min(estimateTokens(user), budget / 4);
+        List<Message> tail = new ArrayList<>();
+        int used = 0;
+        for (int e = exchanges.size() - 1; e >= 0; e--) {
+            int tokens = exchanges.get(e).stream().mapToInt(TokenBudgetChatMemory::estimateTokens).sum();
+            if (!tail.isEmpty() && used + tokens > budget - userReserve) {
+                break;
+            }
+            tail.addAll(0, exchanges.get(e));
+            used += tokens;
+        }
+
+        List<Message> kept = new ArrayList<>();
+        kept.add(truncate(user, Math.max(userReserve, budget - used)));
+        kept.addAll(tail);
+        return kept;
+    }
+
+    private static Message truncate(Message message, int tokens) {
+        int chars = Math.max(0, tokens - TOKENS_PER_MESSAGE) * CHARS_PER_TOKEN;
+        if (!(message instanceof UserMessage user) || user.getText() == null || user.getText().length() <= chars) {
+            return message;
+        }
+        String marker = "\n[... truncated]";
+        return user.mutate().text(user.getText().substring(0, Math.max(0, chars - marker.length())) + marker).build();
+    }
+
+    static int estimateTokens(Message message) {
+        long chars = message.getText() == null ? 0 : message.getText().length();
+        if (message instanceof AssistantMessage assistant) {
+            for (AssistantMessage.ToolCall call : assistant.getToolCalls()) {
+                chars += call.name().length() + call.arguments().length();
+            }
+        } else if (message instanceof ToolResponseMessage toolResponse) {
+            for (ToolResponseMessage.ToolResponse response : toolResponse.getResponses()) {
+                chars += response.name().length() + response.responseData().length();
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, chars / CHARS_PER_TOKEN + TOKENS_PER_MESSAGE);
+    }
+}
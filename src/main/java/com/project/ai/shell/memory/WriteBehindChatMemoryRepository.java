@@ -0,0 +1,376 @@
+package com.project.ai.shell.memory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link ChatMemoryRepository} over the SPRING_AI_CHAT_MEMORY table that never makes the caller wait for JDBC.
+ * <p>
+ * Conversations are read from the table once, on first use, and served from memory after that. A save is
+ * diffed against the cached window: new messages become INSERTs and messages dropped from the window
+ * become DELETEs, queued and written in batches by a background thread. Rows are identified by their
+ * timestamp, which is kept unique per conversation in whole seconds so it survives a TIMESTAMP(0) column.
+ * <p>
+ * Conversations are locked separately, so asks in different sessions never wait on each other. At most
+ * {@code maxPending} changes are queued; a save beyond that waits for the flusher. Each conversation's changes
+ * are written in a transaction of their own, so one bad row only holds back its own conversation. A
+ * conversation whose flush keeps failing is given up after {@code maxAttempts}: each of its changes is then
+ * tried on its own and those that still fail are appended to a dead-letter JSONL file.
+ */
+@Slf4j
+public class WriteBehindChatMemoryRepository implements ChatMemoryRepository, Closeable {
+
+    private record Stored(Message message, Instant timestamp) {
+    }
+
+    private record Change(String conversationId, List<Stored> inserts, List<Instant> deletes, boolean deleteAll) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, List<Stored>> conversations = new ConcurrentHashMap<>();
+    private final Lock[] conversationLocks = new Lock[64];
+    private final BlockingQueue<Change> pending;
+    private final int maxAttempts;
+    private final Path deadLetterFile;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledExecutorService flusher;
+    private final Object flushLock = new Object();
+    // Failed flushes in a row per conversation, guarded by flushLock
+    private final Map<String, Integer> failedFlushes = new HashMap<>();
+
+    public WriteBehindChatMemoryRepository(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, Duration flushInterval,
+                                           int maxPending, int maxAttempts, Path deadLetterFile) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.pending = new LinkedBlockingQueue<>(maxPending);
+        this.maxAttempts = maxAttempts;
+        this.deadLetterFile = deadLetterFile;
+        for (int i = 0; i < conversationLocks.length; i++) {
+            conversationLocks[i] = new ReentrantLock();
+        }
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "chat-memory-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        long millis = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        flush();
+        return jdbcTemplate.queryForList("SELECT DISTINCT conversation_id FROM SPRING_AI_CHAT_MEMORY", String.class);
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        Lock lock = lock(conversationId);
+        lock.lock();
+        try {
+            return conversation(conversationId).stream().map(Stored::message).toList();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        Lock lock = lock(conversationId);
+        lock.lock();
+        try {
+            save(conversationId, messages);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void save(String conversationId, List<Message> messages) {
+        List<Stored> current = conversation(conversationId);
+
+        // The new window is usually the old one with some messages dropped and a few appended
+        List<Stored> kept = new ArrayList<>();
+        List<Instant> deletes = new ArrayList<>();
+        int next = 0;
+        for (Stored stored : current) {
+            if (next < messages.size() && stored.message().equals(messages.get(next))) {
+                kept.add(stored);
+                next++;
+            } else {
+                deletes.add(stored.timestamp());
+            }
+        }
+
+        Instant last = current.isEmpty() ? Instant.EPOCH : current.get(current.size() - 1).timestamp();
+        List<Stored> inserts = new ArrayList<>();
+        for (Message message : messages.subList(next, messages.size())) {
+            Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+            last = now.isAfter(last) ? now : last.plusSeconds(1);
+            inserts.add(new Stored(message, last));
+        }
+        kept.addAll(inserts);
+
+        conversations.put(conversationId, kept);
+        if (!inserts.isEmpty() || !deletes.isEmpty()) {
+            enqueue(new Change(conversationId, inserts, deletes, false));
+        }
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        Lock lock = lock(conversationId);
+        lock.lock();
+        try {
+            conversations.put(conversationId, new ArrayList<>());
+            enqueue(new Change(conversationId, List.of(), List.of(), true));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop a conversation from the cache (it is read from the table again on next use); kept while it has
+     * unwritten changes
+     */
+    public boolean evict(String conversationId) {
+        Lock lock = lock(conversationId);
+        lock.lock();
+        try {
+            if (pending.stream().anyMatch(change -> change.conversationId().equals(conversationId))) {
+                return false;
+            }
+            return conversations.remove(conversationId) != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Lock lock(String conversationId) {
+        return conversationLocks[Math.floorMod(conversationId.hashCode(), conversationLocks.length)];
+    }
+
+    /**
+     * Queue a change, waiting for the flusher when the queue is full; called with the conversation locked, so
+     * changes of one conversation stay in order
+     */
+    private void enqueue(Change change) {
+        try {
+            if (!pending.offer(change)) {
+                log.warn("Chat memory write queue is full ({} changes), waiting for the database", pending.size());
+                pending.put(change);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to queue a chat memory change", e);
+        }
+    }
+
+    /**
+     * The cached window of a conversation, read from the table on first use; the caller holds its lock
+     */
+    private List<Stored> conversation(String conversationId) {
+        List<Stored> cached = conversations.get(conversationId);
+        if (cached != null) {
+            return cached;
+        }
+        List<Stored> loaded = jdbcTemplate.query(
+                "SELECT content, type, `timestamp` FROM SPRING_AI_CHAT_MEMORY WHERE conversation_id = ? ORDER BY `timestamp`",
+                (rs, rowNum) -> new Stored(
+                        toMessage(MessageType.valueOf(rs.getString("type")), rs.getString("content")),
+                        rs.getTimestamp("timestamp").toInstant()),
+                conversationId);
+        conversations.put(conversationId, loaded);
+        return loaded;
+    }
+
+    /**
+     * Write all queued changes, one transaction per conversation and in the order they were made; a
+     * conversation that fails stays queued (or is dead-lettered) without holding back the others
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<String, List<Change>> byConversation = new LinkedHashMap<>();
+            for (Change change : pending) {
+                byConversation.computeIfAbsent(change.conversationId(), id -> new ArrayList<>()).add(change);
+            }
+            Set<Change> done = Collections.newSetFromMap(new IdentityHashMap<>());
+            RuntimeException failure = null;
+            for (List<Change> changes : byConversation.values()) {
+                try {
+                    writeConversation(changes);
+                    done.addAll(changes);
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            pending.removeIf(done::contains);
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Write the queued changes of one conversation, leaving the others to the flusher; a failure is thrown
+     * and the changes stay queued
+     */
+    public void flush(String conversationId) {
+        synchronized (flushLock) {
+            List<Change> changes = pending.stream()
+                    .filter(change -> change.conversationId().equals(conversationId))
+                    .toList();
+            writeConversation(changes);
+            Set<Change> done = Collections.newSetFromMap(new IdentityHashMap<>());
+            done.addAll(changes);
+            pending.removeIf(done::contains);
+        }
+    }
+
+    /**
+     * Write one conversation's changes in one transaction. After {@code maxAttempts} failures in a row they
+     * are written one by one instead, dead-lettering those that fail, and count as done. The caller holds
+     * flushLock and takes done changes off the queue.
+     */
+    private void writeConversation(List<Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        String conversationId = changes.get(0).conversationId();
+        try {
+            transactionTemplate.executeWithoutResult(status -> changes.forEach(this::write));
+            failedFlushes.remove(conversationId);
+        } catch (RuntimeException e) {
+            int failed = failedFlushes.merge(conversationId, 1, Integer::sum);
+            if (failed < maxAttempts) {
+                // Nothing was dropped; the next flush retries the same changes
+                throw e;
+            }
+            log.error("Chat memory flush of conversation {} failed {} times, writing {} changes one by one: {}",
+                    conversationId, failed, changes.size(), e.getMessage());
+            failedFlushes.remove(conversationId);
+            changes.forEach(this::writeOrDeadLetter);
+        }
+    }
+
+    private void writeOrDeadLetter(Change change) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(change));
+        } catch (RuntimeException e) {
+            log.error("Dropping chat memory change of conversation {} to {}: {}", change.conversationId(),
+                    deadLetterFile, e.getMessage());
+            deadLetter(change);
+        }
+    }
+
+    /**
+     * Append a change that could not be written to the dead-letter file, one JSON object per line
+     */
+    private void deadLetter(Change change) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("conversation_id", change.conversationId());
+        record.put("delete_all", change.deleteAll());
+        record.put("deletes", change.deletes().stream().map(Instant::toString).toList());
+        record.put("inserts", change.inserts().stream()
+                .map(stored -> Map.of(
+                        "type", stored.message().getMessageType().name(),
+                        "content", stored.message().getText() == null ? "" : stored.message().getText(),
+                        "timestamp", stored.timestamp().toString()))
+                .toList());
+        try {
+            Files.createDirectories(deadLetterFile.toAbsolutePath().getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(deadLetterFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(objectMapper.writeValueAsString(record));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            log.error("Could not write chat memory dead letter {}: {}", record, e.getMessage());
+        }
+    }
+
+    private void write(Change change) {
+        if (change.deleteAll()) {
+            jdbcTemplate.update("DELETE FROM SPRING_AI_CHAT_MEMORY WHERE conversation_id = ?", change.conversationId());
+        }
+        if (!change.deletes().isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM SPRING_AI_CHAT_MEMORY WHERE conversation_id = ? AND `timestamp` = ?",
+                    change.deletes().stream()
+                            .map(timestamp -> new Object[]{change.conversationId(), Timestamp.from(timestamp)})
+                            .toList());
+        }
+        if (!change.inserts().isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO SPRING_AI_CHAT_MEMORY (conversation_id, content, type, `timestamp`) VALUES (?, ?, ?, ?)",
+                    change.inserts().stream()
+                            .map(stored -> new Object[]{change.conversationId(),
+                                    stored.message().getText() == null ? "" : stored.message().getText(),
+                                    stored.message().getMessageType().name(),
+                                    Timestamp.from(stored.timestamp())})
+                            .toList());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Chat memory flush failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    private static Message toMessage(MessageType type, String content) {
+        return switch (type) {
+            case USER -> new UserMessage(content);
+            case ASSISTANT -> new AssistantMessage(content);
+            case SYSTEM -> new SystemMessage(content);
+            case TOOL -> new ToolResponseMessage(List.of());
+        };
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        flushQuietly();
+    }
+}
@@ -0,0 +1,70 @@
+package com.project.ai.shell.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every call of a tool as shell.tool.calls, tagged with the tool name and outcome (success/error);
+ * the timer count is the call count
+ */
+public class MeteredToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final Timer success;
+    private final Timer error;
+
+    public MeteredToolCallback(ToolCallback delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        String name = delegate.getToolDefinition().name();
+        this.success = timer(registry, name, "success");
+        this.error = timer(registry, name, "error");
+    }
+
+    public static ToolCallback[] wrap(ToolCallback[] callbacks, MeterRegistry registry) {
+        return Arrays.stream(callbacks)
+                .map(callback -> new MeteredToolCallback(callback, registry))
+                .toArray(ToolCallback[]::new);
+    }
+
+    private static Timer timer(MeterRegistry registry, String tool, String outcome) {
+        return Timer.builder("shell.tool.calls")
+                .tag("tool", tool)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        long start = System.nanoTime();
+        Timer outcome = error;
+        try {
+            String result = toolContext == null ? delegate.call(toolInput) : delegate.call(toolInput, toolContext);
+            outcome = success;
+            return result;
+        } finally {
+            outcome.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
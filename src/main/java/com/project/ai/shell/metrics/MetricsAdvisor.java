@@ -0,0 +1,113 @@
+package com.project.ai.shell.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Model call metrics: shell.model.latency (whole call, including tool round trips the model runs itself),
+ * shell.model.first-token for streams, and shell.model.tokens by type (input/output) from the response usage.
+ * Ordered last so it sits right in front of the model, after memory has been added to the prompt.
+ */
+@Component
+public class MetricsAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private final Timer callLatency;
+    private final Timer streamLatency;
+    private final Timer firstToken;
+    private final Counter inputTokens;
+    private final Counter outputTokens;
+    private final Counter errors;
+
+    public MetricsAdvisor(MeterRegistry registry) {
+        this.callLatency = Timer.builder("shell.model.latency").tag("mode", "call")
+                .publishPercentileHistogram().register(registry);
+        this.streamLatency = Timer.builder("shell.model.latency").tag("mode", "stream")
+                .publishPercentileHistogram().register(registry);
+        this.firstToken = Timer.builder("shell.model.first-token")
+                .publishPercentileHistogram().register(registry);
+        this.inputTokens = Counter.builder("shell.model.tokens").tag("type", "input").register(registry);
+        this.outputTokens = Counter.builder("shell.model.tokens").tag("type", "output").register(registry);
+        this.errors = Counter.builder("shell.model.errors").register(registry);
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        long start = System.nanoTime();
+        try {
+            ChatClientResponse response = chain.nextCall(request);
+            recordUsage(response.chatResponse());
+            return response;
+        } catch (RuntimeException e) {
+            errors.increment();
+            throw e;
+        } finally {
+            callLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean first = new AtomicBoolean(true);
+            // Usage is reported on the last chunks and is cumulative, so only the latest one counts
+            AtomicReference<ChatResponse> last = new AtomicReference<>();
+            return chain.nextStream(request)
+                    .doOnNext(response -> {
+                        if (first.compareAndSet(true, false)) {
+                            firstToken.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                        if (response.chatResponse() != null) {
+                            last.set(response.chatResponse());
+                        }
+                    })
+                    .doOnError(e -> errors.increment())
+                    .doFinally(signal -> {
+                        streamLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        recordUsage(last.get());
+                    });
+        });
+    }
+
+    private void recordUsage(ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        if (usage == null) {
+            return;
+        }
+        if (usage.getPromptTokens() != null) {
+            inputTokens.increment(usage.getPromptTokens());
+        }
+        if (usage.getCompletionTokens() != null) {
+            outputTokens.increment(usage.getCompletionTokens());
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "MetricsAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 1;
+    }
+}
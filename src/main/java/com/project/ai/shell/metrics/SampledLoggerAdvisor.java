@@ -0,0 +1,53 @@
+package com.project.ai.shell.metrics;
+
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link SimpleLoggerAdvisor} for a fraction of the requests only (shell.metrics.payload-log.sample-rate,
+ * 0 = never, 1 = always). Full prompts and responses are large; logging all of them costs more than it tells.
+ */
+@Component
+public class SampledLoggerAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private final SimpleLoggerAdvisor delegate = new SimpleLoggerAdvisor();
+    private final double sampleRate;
+
+    public SampledLoggerAdvisor(@Value("${shell.metrics.payload-log.sample-rate:0}") double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        return sampled() ? delegate.adviseCall(request, chain) : chain.nextCall(request);
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        return sampled() ? delegate.adviseStream(request, chain) : chain.nextStream(request);
+    }
+
+    private boolean sampled() {
+        return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    @Override
+    public String getName() {
+        return "SampledLoggerAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        return delegate.getOrder();
+    }
+}
@@ -0,0 +1,68 @@
+package com.project.ai.shell.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * A chunk of a project file that has been embedded into the vector store.
+ * The id is the vector store document id, derived from the path and the chunk's content hash,
+ * so an unchanged chunk keeps its id (and its embedding) across re-indexing.
+ * <p>
+ * The id is assigned by us, so {@link Persistable} tells Spring Data which rows are new;
+ * otherwise every save would SELECT before INSERT.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "indexed_chunks", indexes = @Index(name = "idx_indexed_chunks_file_path", columnList = "filePath"))
+public class IndexedChunk implements Persistable<String> {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false, length = 500)
+    private String filePath;
+
+    /**
+     * SHA-256 of the chunk text
+     */
+    @Column(nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(nullable = false)
+    private int startLine;
+
+    @Column(nullable = false)
+    private int endLine;
+
+    @Column(nullable = false)
+    private LocalDateTime indexedAt;
+
+    @Transient
+    @Builder.Default
+    private boolean fresh = true;
+
+    @PrePersist
+    @PreUpdate
+    private void updateIndexedTime() {
+        indexedAt = LocalDateTime.now();
+    }
+
+    @PostLoad
+    @PostPersist
+    private void markStored() {
+        fresh = false;
+    }
+
+    @Override
+    public boolean isNew() {
+        return fresh;
+    }
+}
@@ -14,8 +14,12 @@ import java.time.LocalDateTime;
 public class TrackedFile {
 
 
+    /**
+     * Pooled sequence instead of IDENTITY so Hibernate can batch the inserts
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tracked_files_seq")
+    @SequenceGenerator(name = "tracked_files_seq", sequenceName = "tracked_files_seq", allocationSize = 500)
     private Long id;
 
     /**
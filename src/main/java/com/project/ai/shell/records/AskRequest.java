@@ -0,0 +1,7 @@
+package com.project.ai.shell.records;
+
+/**
+ * Body of POST /api/ask; session is a name private to the calling client, "default" when omitted
+ */
+public record AskRequest(String query, String session) {
+}
@@ -0,0 +1,6 @@
+package com.project.ai.shell.records;
+
+/**
+ * A piece of a file cut at a code-structure boundary; lines are 1-based and inclusive.
+ */
+public record CodeChunk(int startLine, int endLine, String text) {}
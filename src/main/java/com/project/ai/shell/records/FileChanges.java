@@ -0,0 +1,17 @@
+package com.project.ai.shell.records;
+
+import java.util.List;
+
+/**
+ * Published after a file sync with the relative paths that changed since the previous one.
+ */
+public record FileChanges(List<String> added, List<String> modified, List<String> deleted) {
+
+    public boolean isEmpty() {
+        return added.isEmpty() && modified.isEmpty() && deleted.isEmpty();
+    }
+
+    public int size() {
+        return added.size() + modified.size() + deleted.size();
+    }
+}
@@ -0,0 +1,9 @@
+package com.project.ai.shell.records;
+
+import java.nio.file.Path;
+
+/**
+ * A directory tree served by FileService. {@code prefix} is prepended to relative paths under this root
+ * ("" when there is a single root, "name/" when several roots are served side by side).
+ */
+public record ProjectRoot(String prefix, Path path) {}
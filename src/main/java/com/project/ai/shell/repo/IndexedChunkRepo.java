@@ -0,0 +1,17 @@
+package com.project.ai.shell.repo;
+
+import com.project.ai.shell.model.IndexedChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface IndexedChunkRepo extends JpaRepository<IndexedChunk, String> {
+
+    List<IndexedChunk> findByFilePathIn(Collection<String> filePaths);
+
+    @Query("select distinct c.filePath from IndexedChunk c")
+    List<String> findDistinctFilePaths();
+
+}
@@ -5,7 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.Optional;
 
-public interface TrackedFileRepo extends JpaRepository<TrackedFile, String> {
+public interface TrackedFileRepo extends JpaRepository<TrackedFile, Long> {
 //    Optional<TrackedFile> findByFilePath(String filePath);
 Optional<TrackedFile> findByFilePath(String filePath);
 
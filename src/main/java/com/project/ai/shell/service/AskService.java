@@ -0,0 +1,241 @@
+package com.project.ai.shell.service;
+
+import com.project.ai.shell.llm.ModelRouter;
+import com.project.ai.shell.metrics.MeteredToolCallback;
+import com.project.ai.shell.metrics.MetricsAdvisor;
+import com.project.ai.shell.metrics.SampledLoggerAdvisor;
+import com.project.ai.shell.session.Session;
+import com.project.ai.shell.session.SessionRegistry;
+import com.project.ai.shell.tool.AiTools;
+import com.project.ai.shell.tool.CodeTools;
+import com.project.ai.shell.tool.FileTools;
+import com.project.ai.shell.tool.SemanticSearchTools;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ask pipeline (rules, tools, memory) shared by the shell command and the HTTP API
+ */
+@Service
+@Slf4j
+public class AskService {
+
+    private final ChatClient chatClient;
+    private final ChatMemory chatMemory;
+    private final List<String> pinnedFiles;
+    private final ToolCallback[] toolCallbacks;
+    private final MetricsAdvisor metricsAdvisor;
+    private final SampledLoggerAdvisor loggerAdvisor;
+    private final ModelRouter modelRouter;
+    private final ContextPacker contextPacker;
+    private final SessionRegistry sessions;
+    private final String rules;
+
+    private static final String RULES = """
+            rule 1 : never ask for a question or permission
+            rule 2 : %s
+            rule 3 : always use the paths exactly as given by the project map or the tools
+            rule 4 : just do it
+            rule 5 : always use the tool named FileGenerator to generat code
+            rule 6 : to find where something is declared or used, use findDefinition, findReferences, findCallers and outline before reading whole files
+            rule 7 : when you do not know the name of what you look for, use semanticSearch with a description of it
+            """;
+    private static final String LIST_FILES_RULE = "always first use the ListAllFiles tool to fetch the file Paths";
+    private static final String MAP_RULE = "find files in the project map below; use the ListAllFiles tool only when the map does not show what you need";
+
+    public AskService(ChatModel model, FileTools fileTools, AiTools aiTools, CodeTools codeTools,
+                      SemanticSearchTools searchTools,
+                      @Qualifier("JdbcChatMemory") ChatMemory chatMemory,
+                      @Value("${shell.prompt.pinned-files:}") List<String> pinnedFiles,
+                      MeterRegistry meterRegistry, MetricsAdvisor metricsAdvisor, SampledLoggerAdvisor loggerAdvisor,
+                      ModelRouter modelRouter, ContextPacker contextPacker, SessionRegistry sessions) {
+        this.chatClient = ChatClient.builder(model).build();
+        this.chatMemory = chatMemory;
+        this.pinnedFiles = pinnedFiles;
+        // Reflection order is not stable between runs; sort so the tool schemas serialize identically
+        this.toolCallbacks = MeteredToolCallback.wrap(Arrays.stream(ToolCallbacks.from(fileTools, aiTools, codeTools, searchTools))
+                .sorted(Comparator.comparing(callback -> callback.getToolDefinition().name()))
+                .toArray(ToolCallback[]::new), meterRegistry);
+        this.metricsAdvisor = metricsAdvisor;
+        this.loggerAdvisor = loggerAdvisor;
+        this.modelRouter = modelRouter;
+        this.contextPacker = contextPacker;
+        this.sessions = sessions;
+        this.rules = RULES.formatted(contextPacker.isEnabled() ? MAP_RULE : LIST_FILES_RULE);
+    }
+
+    /**
+     * The session is marked in use for the whole ask, tool calls included, so it is not evicted under it
+     */
+    public String call(String query, Session session) {
+        sessions.begin(session);
+        try {
+            return prompt(query, session).call().content();
+        } finally {
+            sessions.end(session);
+        }
+    }
+
+    public Flux<String> stream(String query, Session session) {
+        return Flux.defer(() -> {
+            sessions.begin(session);
+            try {
+                return prompt(query, session).stream().content()
+                        .doFinally(signal -> sessions.end(session));
+            } catch (RuntimeException e) {
+                sessions.end(session);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * The fixed rules, the pinned files in configuration order, then the project map (whose question-specific
+     * part comes last)
+     */
+    private String systemPrompt(Session session, String query) {
+        StringBuilder prompt = new StringBuilder(rules);
+        for (String path : pinnedFiles) {
+            try {
+                prompt.append("\n--- ").append(path).append(" ---\n").append(session.getFileService().readFile(path));
+            } catch (IOException e) {
+                log.warn("Pinned file {} not readable: {}", path, e.getMessage());
+            }
+        }
+        return prompt.append(contextPacker.pack(session.getFileService(), query)).toString();
+    }
+
+    private ChatClient.ChatClientRequestSpec prompt(String query, Session session) {
+        return chatClient.prompt()
+////                .system("""
+////You are an **AI Code Assistant** that can generate, retrieve, edit, and analyze code files with access to the following tools:
+////- 🧰 **FileTools**
+////  - `listAllFilePaths`: Lists all files and their paths in the project.
+////  - `fileRetrievalTool`: Reads a file’s content when given its relative path.
+////  - `writeInFile`: Creates or updates a file at a given path with full content.
+////
+////- 🤖 **AiTools**
+////  - `FileGenerator`: Generates a complete, fully compilable Java file (with imports, package name, and class definition).
+////
+////- 💾 **VectorStore**
+////  - Used for retrieving project or contextually related information during question-answer tasks.
+////
+////- 🧠 **ChatMemory**
+////  - Retains context across multiple user interactions within the same session.
+////
+////---
+////
+////### 🧩 GENERAL BEHAVIOR RULES
+////1. **Think before using tools**
+////   - First, decide if a tool is actually needed.
+////   - If the question is general or conceptual (e.g. “What is dependency injection?”), **do NOT use tools** — just answer directly.
+////
+////2. **Tool Usage Logic**
+////   - **Need to access or search for a file?**
+////     Use `listAllFilePaths` first to locate the file, then `fileRetrievalTool` to read it.
+////   - **Need to update or create a file?**
+////     Use `FileGenerator` (from AiTools) to generate the full file content, then write it using `writeInFile`.
+////   - **Simple text explanation or reasoning?**
+////     Skip tools entirely — respond directly.
+////   - **When uncertain whether a tool is needed**, evaluate first: if it’s faster or more logical to just answer directly, do that.
+////
+////3. **Tool Cooperation Rules**
+////   - Never ask the user for file paths that you can retrieve via `listAllFilePaths`.
+////   - Always prefer automation over manual user requests.
+////   - If file content is already available from a previous query (in memory), use it — don’t redundantly call tools.
+////   - Use `VectorStore` for referencing or grounding your answers when dealing with documentation-like or prior project context.
+////
+////4. **File Generation Rules**
+////   - When creating new code or refactoring large files, always use `FileGenerator` (AiTools).
+////     - Make sure to include imports, package names, and valid class syntax.
+////     - Once generated, immediately save it using `writeInFile`.
+////   - For small one-line or inline edits, directly modify existing content using `writeInFile`.
+////
+////5. **Error Handling & Fallbacks**
+////   - If a required tool fails or doesn’t return useful data, fall back to logical reasoning and partial completion — don’t stop mid-process.
+////   - Never claim “I can’t do this” if the task doesn’t *actually* require a tool.
+////
+////6. **Memory & Context**
+////   - Always consider past conversation memory when responding.
+////   - Maintain consistency across turns (e.g. project context, file paths, class names).
+////
+////---
+////
+////### 🧠 SMART STRATEGY EXAMPLES
+////
+////#### ✅ Example 1: Simple Question
+////**User:** “What is an interface in Java?”
+////→ Do not use any tool. Respond directly.
+////
+////#### ✅ Example 2: Locate a File
+////**User:** “Open the main controller file.”
+////→ Use `listAllFilePaths` to find it, then `fileRetrievalTool` to show content.
+////
+////#### ✅ Example 3: Modify a Class
+////**User:** “Add a new method to UserService.java.”
+////→ Use `listAllFilePaths` → `fileRetrievalTool` → edit → `writeInFile`.
+////
+////#### ✅ Example 4: Create a New File
+////**User:** “Create a Spring Boot service class for managing user sessions.”
+////→ Use `FileGenerator` to generate the full class → save using `writeInFile`.
+////
+////#### ✅ Example 5: Conceptual + Code Task
+////**User:** “Explain how dependency injection works and show an example implementation.”
+////→ Provide the explanation directly, then use `FileGenerator` only for the example file (not for the explanation).
+////
+////#### ✅ Example 6: Complex Multi-Step Request
+////**User:** “Create a full CRUD module for Employee entity.”
+////→ Step 1: Use `FileGenerator` to create multiple files (Entity, Repository, Service, Controller).
+////→ Step 2: Save each via `writeInFile`.
+////→ Step 3: Confirm completion.
+////
+////---
+////
+////### ⚙️ MANDATORY BEHAVIOR SUMMARY
+////- Use tools only when essential.
+////- Never request user input for data you can fetch via tools.
+////- Always generate **complete** files — not snippets.
+////- When creating or updating files, **save them automatically**.
+////- Keep responses practical, structured, and to the point.
+////- Maintain consistent context using `ChatMemory`.
+////- Skip redundant tool calls or re-fetching known data.
+////
+////""")
+                // System prompt and tool schemas first and byte-identical on every call up to the question-specific
+                // end of the project map, so Gemini can reuse the cached prefix
+                .system(systemPrompt(session, query))
+                .options(modelRouter.forQuery(query))
+                .toolCallbacks(toolCallbacks)
+                .toolContext(Map.of(SessionRegistry.SESSION_ID, session.getId()))
+                .user(query)
+                .advisors(
+                        loggerAdvisor,
+                        metricsAdvisor,
+
+                        MessageChatMemoryAdvisor.builder(chatMemory)
+                                .conversationId(session.getConversationId())
+                                .build()
+
+
+//                       MessageChatMemoryAdvisor.builder(chatMemory).conversationId("shell").build()
+//                         , new QuestionAnswerAdvisor(vectorStore)
+                );
+    }
+
+}
@@ -0,0 +1,133 @@
+package com.project.ai.shell.service;
+
+import com.project.ai.shell.records.CodeChunk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits file content into chunks that follow the code structure.
+ * <p>
+ * For brace languages a boundary is a line where the nesting depth is back at class-body level (the end of
+ * a method, field or nested type), so members are never cut in half unless a single member is bigger than
+ * the chunk size. Other files are split at blank lines. Adjacent small pieces are packed together up to
+ * {@code maxChars}.
+ */
+public class CodeChunker {
+
+    private static final List<String> BRACE_EXTENSIONS = List.of(
+            ".java", ".kt", ".scala", ".groovy", ".js", ".ts", ".tsx", ".jsx", ".c", ".h", ".cpp", ".cs", ".go", ".rs");
+
+    private final int maxChars;
+
+    public CodeChunker(int maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    public List<CodeChunk> chunk(String path, String content) {
+        String[] lines = content.split("\n", -1);
+        boolean braces = BRACE_EXTENSIONS.stream().anyMatch(path::endsWith);
+
+        List<CodeChunk> chunks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int currentStart = 1;
+        int pieceStart = 0;
+        int depth = 0;
+        boolean inBlockComment = false;
+
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            boolean boundary;
+            if (braces) {
+                int before = depth;
+                for (int c = 0; c < line.length(); c++) {
+                    char ch = line.charAt(c);
+                    if (inBlockComment) {
+                        if (ch == '*' && c + 1 < line.length() && line.charAt(c + 1) == '/') {
+                            inBlockComment = false;
+                            c++;
+                        }
+                    } else if (ch == '/' && c + 1 < line.length() && line.charAt(c + 1) == '/') {
+                        break;
+                    } else if (ch == '/' && c + 1 < line.length() && line.charAt(c + 1) == '*') {
+                        inBlockComment = true;
+                        c++;
+                    } else if (ch == '"' || ch == '\'') {
+                        c = skipLiteral(line, c);
+                    } else if (ch == '{') {
+                        depth++;
+                    } else if (ch == '}') {
+                        depth = Math.max(0, depth - 1);
+                    }
+                }
+                boundary = depth <= 1 && (before > depth || line.isBlank());
+            } else {
+                boundary = line.isBlank();
+            }
+
+            // Piece = lines since the last boundary; pack pieces into chunks
+            if (boundary || i == lines.length - 1) {
+                String piece = join(lines, pieceStart, i);
+                if (current.length() > 0 && current.length() + piece.length() > maxChars) {
+                    addChunk(chunks, currentStart, pieceStart, current.toString());
+                    current.setLength(0);
+                    currentStart = pieceStart + 1;
+                }
+                if (piece.length() > maxChars) {
+                    splitOversized(chunks, lines, pieceStart, i);
+                    currentStart = i + 2;
+                } else {
+                    current.append(piece);
+                }
+                pieceStart = i + 1;
+            }
+        }
+        if (current.length() > 0) {
+            addChunk(chunks, currentStart, lines.length, current.toString());
+        }
+        return chunks;
+    }
+
+    /**
+     * A single member bigger than the chunk size, cut by lines
+     */
+    private void splitOversized(List<CodeChunk> chunks, String[] lines, int from, int to) {
+        StringBuilder part = new StringBuilder();
+        int partStart = from;
+        for (int i = from; i <= to; i++) {
+            if (part.length() > 0 && part.length() + lines[i].length() + 1 > maxChars) {
+                addChunk(chunks, partStart + 1, i, part.toString());
+                part.setLength(0);
+                partStart = i;
+            }
+            part.append(lines[i]).append('\n');
+        }
+        addChunk(chunks, partStart + 1, to + 1, part.toString());
+    }
+
+    private static void addChunk(List<CodeChunk> chunks, int startLine, int endLine, String text) {
+        if (!text.isBlank()) {
+            chunks.add(new CodeChunk(startLine, endLine, text));
+        }
+    }
+
+    private static String join(String[] lines, int from, int to) {
+        StringBuilder piece = new StringBuilder();
+        for (int i = from; i <= to; i++) {
+            piece.append(lines[i]).append('\n');
+        }
+        return piece.toString();
+    }
+
+    private static int skipLiteral(String line, int start) {
+        char quote = line.charAt(start);
+        for (int c = start + 1; c < line.length(); c++) {
+            if (line.charAt(c) == '\\') {
+                c++;
+            } else if (line.charAt(c) == quote) {
+                return c;
+            }
+        }
+        return line.length();
+    }
+}
@@ -0,0 +1,253 @@
+package com.project.ai.shell.service;
+
+import com.project.ai.shell.records.FileInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the project map added to the system prompt in place of the flat file list: directories with file
+ * counts, the most recently changed files with their Java outline, then the files that best match the
+ * question.
+ * <p>
+ * Everything but the last section depends only on the file index, so it is cached per index version and stays
+ * byte-identical between asks (part of the prompt prefix the model can reuse). Tokens are estimated at four
+ * characters each, like {@link com.project.ai.shell.memory.TokenBudgetChatMemory}.
+ */
+@Service
+@Slf4j
+public class ContextPacker {
+
+    private static final int CHARS_PER_TOKEN = 4;
+    // FileIndex keys are built from Path.toString(), so they use the platform separator
+    private static final char SEPARATOR = File.separatorChar;
+    private static final int MAX_SUMMARY_CHARS = 240;
+    private static final Pattern WORD = Pattern.compile("[^A-Za-z0-9_]+");
+    private static final Pattern CAMEL = Pattern.compile("(?<=[a-z0-9])(?=[A-Z])|_");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "the", "and", "for", "with", "this", "that", "from", "into", "all", "each", "add", "use", "make",
+            "file", "files", "code", "class", "method", "java", "please", "can", "how", "what", "where", "why");
+
+    private record Packed(long version, String base, List<FileInfo> files, Set<String> listed) {
+    }
+
+    private final boolean enabled;
+    private final int maxChars;
+    private final Map<FileService, Packed> cache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public ContextPacker(@Value("${shell.prompt.project-map.enabled:true}") boolean enabled,
+                         @Value("${shell.prompt.project-map.max-tokens:4000}") int maxTokens) {
+        this.enabled = enabled;
+        this.maxChars = maxTokens * CHARS_PER_TOKEN;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The project map for this question, or an empty string when disabled
+     */
+    public String pack(FileService fileService, String query) {
+        if (!enabled) {
+            return "";
+        }
+        Packed packed;
+        try {
+            packed = packed(fileService);
+        } catch (IOException e) {
+            log.warn("Project map not built: {}", e.getMessage());
+            return "";
+        }
+        String relevant = relevant(fileService, packed, query, maxChars - packed.base().length());
+        return relevant.isEmpty() ? packed.base() : packed.base() + relevant;
+    }
+
+    private Packed packed(FileService fileService) throws IOException {
+        long version = fileService.indexVersion();
+        Packed packed = cache.get(fileService);
+        if (packed != null && packed.version() == version) {
+            return packed;
+        }
+        long start = System.nanoTime();
+        List<FileInfo> files = new ArrayList<>(fileService.listAllFilesWithTime());
+        files.sort(Comparator.comparingLong(FileInfo::lastModifiedTime).reversed()
+                .thenComparing(FileInfo::relativePath));
+        SymbolIndex symbols = fileService.symbols();
+
+        // Static part gets at most 60% so the question-specific files always have room
+        int budget = maxChars * 3 / 5;
+        StringBuilder base = new StringBuilder("\nProject map (").append(files.size()).append(" files)\n");
+        base.append(directories(files, budget / 2));
+        Set<String> listed = new HashSet<>();
+        base.append(recent(files, symbols, budget - base.length(), listed));
+        packed = new Packed(version, base.toString(), files, listed);
+        cache.put(fileService, packed);
+        log.debug("Project map: {} chars for {} files in {} ms", packed.base().length(), files.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        return packed;
+    }
+
+    /**
+     * Directory paths with the number of files below them, shallowest and largest first until the budget is
+     * spent, then listed in path order. A directory holding only one subdirectory is left out for that one
+     */
+    private static String directories(List<FileInfo> files, int budget) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (FileInfo file : files) {
+            String path = file.relativePath();
+            for (int slash = path.indexOf(SEPARATOR); slash >= 0; slash = path.indexOf(SEPARATOR, slash + 1)) {
+                counts.merge(path.substring(0, slash + 1), 1, Integer::sum);
+            }
+        }
+        Set<String> chains = new HashSet<>();
+        counts.forEach((directory, count) -> {
+            int slash = directory.lastIndexOf(SEPARATOR, directory.length() - 2);
+            if (slash >= 0 && count.equals(counts.get(directory.substring(0, slash + 1)))) {
+                chains.add(directory.substring(0, slash + 1));
+            }
+        });
+        counts.keySet().removeAll(chains);
+        List<Map.Entry<String, Integer>> byDepth = new ArrayList<>(counts.entrySet());
+        byDepth.sort(Comparator.<Map.Entry<String, Integer>>comparingInt(entry -> depth(entry.getKey()))
+                .thenComparing(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .thenComparing(Map.Entry.comparingByKey()));
+
+        List<String> lines = new ArrayList<>();
+        int used = 0;
+        for (Map.Entry<String, Integer> entry : byDepth) {
+            String line = entry.getKey() + " (" + entry.getValue() + ")\n";
+            if (used + line.length() > budget) {
+                break;
+            }
+            lines.add(line);
+            used += line.length();
+        }
+        if (lines.isEmpty()) {
+            return "";
+        }
+        Collections.sort(lines);
+        String omitted = lines.size() < byDepth.size() ? " (deeper ones omitted)" : "";
+        return "Directories (files below)" + omitted + ":\n" + String.join("", lines);
+    }
+
+    private static int depth(String directory) {
+        int depth = 0;
+        for (int i = 0; i < directory.length(); i++) {
+            if (directory.charAt(i) == SEPARATOR) {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    private static String recent(List<FileInfo> files, SymbolIndex symbols, int budget, Set<String> listed) {
+        StringBuilder out = new StringBuilder("Recently changed:\n");
+        int header = out.length();
+        for (FileInfo file : files) {
+            String line = line(file.relativePath(), symbols);
+            if (out.length() + line.length() > budget) {
+                break;
+            }
+            out.append(line);
+            listed.add(file.relativePath());
+        }
+        return out.length() == header ? "" : out.toString();
+    }
+
+    /**
+     * Files whose path or declared names match words of the question, best first, recency breaking ties
+     */
+    private static String relevant(FileService fileService, Packed packed, String query, int budget) {
+        Set<String> terms = new LinkedHashSet<>();
+        Set<String> identifiers = new HashSet<>();
+        for (String word : WORD.split(query)) {
+            if (word.length() < 3) {
+                continue;
+            }
+            // Only words that look like code, so "log" in a sentence does not match every logger field
+            if (!word.equals(word.toLowerCase(Locale.ROOT))) {
+                identifiers.add(word);
+            }
+            for (String part : CAMEL.split(word)) {
+                String term = part.toLowerCase(Locale.ROOT);
+                if (term.length() >= 3 && !STOP_WORDS.contains(term)) {
+                    terms.add(term);
+                }
+            }
+        }
+        if (terms.isEmpty() || budget <= 0) {
+            return "";
+        }
+
+        SymbolIndex symbols = fileService.symbols();
+        Set<String> declaring = new HashSet<>();
+        for (String identifier : identifiers) {
+            declaring.addAll(symbols.pathsDefining(identifier));
+        }
+
+        List<FileInfo> files = packed.files();
+        Map<String, Integer> scores = new HashMap<>();
+        for (FileInfo file : files) {
+            String path = file.relativePath();
+            String lower = path.toLowerCase(Locale.ROOT);
+            String name = lower.substring(lower.lastIndexOf(SEPARATOR) + 1);
+            int score = declaring.contains(path) ? 5 : 0;
+            for (String term : terms) {
+                if (name.contains(term)) {
+                    score += 3;
+                } else if (lower.contains(term)) {
+                    score += 1;
+                }
+            }
+            if (score > 0 && !packed.listed().contains(path)) {
+                scores.put(path, score);
+            }
+        }
+        if (scores.isEmpty()) {
+            return "";
+        }
+
+        // files are in recency order and the sort is stable
+        List<FileInfo> ranked = files.stream().filter(file -> scores.containsKey(file.relativePath()))
+                .sorted(Comparator.comparingInt((FileInfo file) -> scores.get(file.relativePath())).reversed())
+                .toList();
+        StringBuilder out = new StringBuilder("Likely relevant to this question:\n");
+        int header = out.length();
+        for (FileInfo file : ranked) {
+            String line = line(file.relativePath(), symbols);
+            if (out.length() + line.length() > budget) {
+                break;
+            }
+            out.append(line);
+        }
+        return out.length() == header ? "" : out.toString();
+    }
+
+    private static String line(String path, SymbolIndex symbols) {
+        String summary = symbols.summary(path);
+        if (summary == null || summary.isEmpty()) {
+            return path + "\n";
+        }
+        if (summary.length() > MAX_SUMMARY_CHARS) {
+            int cut = summary.lastIndexOf(", ", MAX_SUMMARY_CHARS);
+            summary = summary.substring(0, cut < 0 ? MAX_SUMMARY_CHARS : cut + 1) + " ...";
+        }
+        return path + "  [" + summary + "]\n";
+    }
+}
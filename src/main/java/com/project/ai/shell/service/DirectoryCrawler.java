@@ -0,0 +1,97 @@
+package com.project.ai.shell.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Walks directory trees on a fork-join pool, one task per directory.
+ * <p>
+ * Stat calls dominate a cold crawl, so listing sibling directories in parallel hides most of the per-call
+ * latency on network mounts and large checkouts. Ignored directories are never opened. Callbacks can run on
+ * any pool thread, so they must be thread-safe; ordering is left to the caller (the index is a sorted map).
+ */
+@Slf4j
+public class DirectoryCrawler implements Closeable {
+
+    /**
+     * Receives every regular file that is not ignored
+     */
+    public interface FileVisitor {
+        void visit(Path file, BasicFileAttributes attrs);
+    }
+
+    private final ForkJoinPool pool;
+
+    public DirectoryCrawler(int parallelism) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    /**
+     * Crawl everything below {@code start}, blocking until done
+     */
+    public void crawl(Path start, IgnoreMatcher matcher, Consumer<Path> onDirectory, FileVisitor onFile) {
+        pool.invoke(new CrawlTask(start, matcher, onDirectory, onFile));
+    }
+
+    private static final class CrawlTask extends RecursiveAction {
+
+        private final Path dir;
+        private final IgnoreMatcher matcher;
+        private final Consumer<Path> onDirectory;
+        private final FileVisitor onFile;
+
+        private CrawlTask(Path dir, IgnoreMatcher matcher, Consumer<Path> onDirectory, FileVisitor onFile) {
+            this.dir = dir;
+            this.matcher = matcher;
+            this.onDirectory = onDirectory;
+            this.onFile = onFile;
+        }
+
+        @Override
+        protected void compute() {
+            onDirectory.accept(dir);
+
+            List<CrawlTask> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+                for (Path child : children) {
+                    BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        log.debug("Skipping unreadable path {}: {}", child, e.getMessage());
+                        continue;
+                    }
+
+                    if (attrs.isDirectory()) {
+                        if (!matcher.isIgnoredDirectory(child)) {
+                            subdirectories.add(new CrawlTask(child, matcher, onDirectory, onFile));
+                        }
+                    } else if (attrs.isRegularFile() && !matcher.isIgnoredFile(child)) {
+                        onFile.visit(child, attrs);
+                    }
+                }
+            } catch (IOException e) {
+                log.debug("Skipping unreadable directory {}: {}", dir, e.getMessage());
+            }
+
+            invokeAll(subdirectories);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
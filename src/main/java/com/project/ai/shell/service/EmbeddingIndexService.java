@@ -0,0 +1,428 @@
+package com.project.ai.shell.service;
+
+import com.project.ai.shell.model.IndexedChunk;
+import com.project.ai.shell.records.CodeChunk;
+import com.project.ai.shell.records.FileChanges;
+import com.project.ai.shell.repo.IndexedChunkRepo;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the vector store in line with the project files.
+ * <p>
+ * Files are cut into structure-aware chunks and each chunk is identified by its path and content hash.
+ * {@link FileChanges} events only queue the paths; a single background thread drains the queue, embeds the
+ * chunks whose hash is new and deletes chunks that no longer exist. A chunk whose text is unchanged but which
+ * moved to other lines keeps its id and is stored again with its new line range (its embedding then comes from
+ * the embedding cache when that is enabled). Embedding calls are batched, run on a bounded pool and retried
+ * with jittered exponential backoff.
+ * <p>
+ * The indexed_chunks table records what is in the store, per file and only once all of that file's vectors
+ * were added. A file that fails has the vectors it did add removed again and is queued for another pass after
+ * shell.embedding.retry-delay, up to shell.embedding.max-requeues times. Files that have no recorded chunks are
+ * queued once at startup, so a failure before a restart is picked up again.
+ */
+@Service
+@Slf4j
+public class EmbeddingIndexService {
+
+    private record Pending(IndexedChunk row, String text) {
+    }
+
+    /**
+     * What one file needs: chunks to embed and record, recorded chunks whose line range changed, and recorded
+     * chunks that are gone
+     */
+    private record FilePlan(String path, List<Pending> toAdd, List<Pending> moved, List<String> stale) {
+    }
+
+    private final FileService fileService;
+    private final VectorStore vectorStore;
+    private final IndexedChunkRepo indexedChunkRepo;
+    private final CodeChunker chunker;
+    private final ExecutorService embeddingExecutor;
+    private final ScheduledExecutorService indexer;
+
+    private static final int PATHS_PER_PASS = 500;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final long maxFileBytes;
+    private final Duration retryDelay;
+    private final int maxRequeues;
+
+    // Guarded by this
+    private final Set<String> queued = new LinkedHashSet<>();
+    private final Map<String, Integer> failures = new HashMap<>();
+    private boolean drainPending;
+    private boolean reconciled;
+
+    public EmbeddingIndexService(FileService fileService,
+                                 VectorStore vectorStore,
+                                 IndexedChunkRepo indexedChunkRepo,
+                                 @Value("${shell.embedding.chunk-size:1500}") int chunkSize,
+                                 @Value("${shell.embedding.batch-size:32}") int batchSize,
+                                 @Value("${shell.embedding.concurrency:4}") int concurrency,
+                                 @Value("${shell.embedding.max-attempts:4}") int maxAttempts,
+                                 @Value("${shell.embedding.backoff-millis:500}") long backoffMillis,
+                                 @Value("${shell.embedding.retry-delay:PT1M}") Duration retryDelay,
+                                 @Value("${shell.embedding.max-requeues:5}") int maxRequeues,
+                                 @Value("${shell.index.content.max-file-size:1048576}") long maxFileBytes) {
+        this.fileService = fileService;
+        this.vectorStore = vectorStore;
+        this.indexedChunkRepo = indexedChunkRepo;
+        this.chunker = new CodeChunker(chunkSize);
+        this.embeddingExecutor = Executors.newFixedThreadPool(Math.max(1, concurrency), r -> {
+            Thread t = new Thread(r, "embedding-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        this.indexer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "embedding-index");
+            t.setDaemon(true);
+            return t;
+        });
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+        this.maxFileBytes = maxFileBytes;
+        this.retryDelay = retryDelay;
+        this.maxRequeues = maxRequeues;
+    }
+
+    /**
+     * Queue the changed files; returns at once, the index is brought up to date in the background
+     */
+    @EventListener
+    public void onFileChanges(FileChanges changes) {
+        Set<String> paths = new LinkedHashSet<>();
+        paths.addAll(changes.added());
+        paths.addAll(changes.modified());
+        paths.addAll(changes.deleted());
+        if (paths.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            // Changed again: it gets a fresh set of attempts
+            failures.keySet().removeAll(paths);
+            queued.addAll(paths);
+            if (drainPending) {
+                return;
+            }
+            drainPending = true;
+        }
+        indexer.execute(this::drain);
+    }
+
+    /**
+     * Look for files without recorded chunks once, even if nothing changed since the last run
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void onStarted() {
+        synchronized (this) {
+            if (drainPending) {
+                return;
+            }
+            drainPending = true;
+        }
+        indexer.execute(this::drain);
+    }
+
+    private void drain() {
+        List<String> paths;
+        boolean reconcile;
+        synchronized (this) {
+            drainPending = false;
+            reconcile = !reconciled;
+            reconciled = true;
+        }
+        if (reconcile) {
+            queueUnindexed();
+        }
+        synchronized (this) {
+            paths = new ArrayList<>(queued);
+            queued.clear();
+        }
+        if (paths.isEmpty()) {
+            return;
+        }
+
+        Set<String> failed;
+        try {
+            failed = reindex(paths);
+        } catch (RuntimeException e) {
+            log.warn("Re-indexing {} files failed: {}", paths.size(), e.getMessage());
+            failed = new LinkedHashSet<>(paths);
+        }
+        requeue(paths, failed);
+    }
+
+    private void queueUnindexed() {
+        try {
+            Set<String> indexed = new HashSet<>(indexedChunkRepo.findDistinctFilePaths());
+            List<String> missing = fileService.listAllFiles().stream().filter(path -> !indexed.contains(path)).toList();
+            synchronized (this) {
+                queued.addAll(missing);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not look for files missing from the vector index: {}", e.getMessage());
+        }
+    }
+
+    private void requeue(List<String> paths, Set<String> failed) {
+        boolean retry = false;
+        synchronized (this) {
+            for (String path : paths) {
+                if (!failed.contains(path)) {
+                    failures.remove(path);
+                    continue;
+                }
+                int attempts = failures.merge(path, 1, Integer::sum);
+                if (attempts > maxRequeues) {
+                    log.warn("Giving up embedding {} after {} passes, it is retried when it changes", path, attempts);
+                    failures.remove(path);
+                } else {
+                    queued.add(path);
+                    retry = true;
+                }
+            }
+        }
+        if (retry) {
+            indexer.schedule(this::drain, retryDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Bring the vector store up to date for the given relative paths (deleted files lose all their chunks) and
+     * return the paths that could not be
+     */
+    Set<String> reindex(Collection<String> paths) {
+        long start = System.nanoTime();
+        int embedded = 0;
+        int moved = 0;
+        int removed = 0;
+        Set<String> failed = new LinkedHashSet<>();
+
+        // Bounded slices keep the IN queries and the pending documents small on a first full index
+        List<String> all = new ArrayList<>(paths);
+        for (int from = 0; from < all.size(); from += PATHS_PER_PASS) {
+            int[] counts = reindexSlice(all.subList(from, Math.min(from + PATHS_PER_PASS, all.size())), failed);
+            embedded += counts[0];
+            moved += counts[1];
+            removed += counts[2];
+        }
+
+        log.info("Re-indexed {} files: {} chunks embedded, {} moved, {} removed, {} files failed in {} ms",
+                paths.size(), embedded, moved, removed, failed.size(), (System.nanoTime() - start) / 1_000_000);
+        return failed;
+    }
+
+    private int[] reindexSlice(List<String> paths, Set<String> failed) {
+        Map<String, List<IndexedChunk>> existing = indexedChunkRepo.findByFilePathIn(paths).stream()
+                .collect(Collectors.groupingBy(IndexedChunk::getFilePath));
+
+        List<FilePlan> plans = new ArrayList<>();
+        List<Document> toEmbed = new ArrayList<>();
+        for (String path : paths) {
+            Map<String, Pending> wanted = desiredChunks(path);
+            Set<String> known = new HashSet<>();
+            List<String> stale = new ArrayList<>();
+            List<Pending> moved = new ArrayList<>();
+            for (IndexedChunk chunk : existing.getOrDefault(path, List.of())) {
+                known.add(chunk.getId());
+                Pending want = wanted.get(chunk.getId());
+                if (want == null) {
+                    stale.add(chunk.getId());
+                } else if (want.row().getStartLine() != chunk.getStartLine() || want.row().getEndLine() != chunk.getEndLine()) {
+                    // Same text at other lines (e.g. lines inserted above): the row and the document's line
+                    // metadata must follow, or semanticSearch points at the wrong lines
+                    chunk.setStartLine(want.row().getStartLine());
+                    chunk.setEndLine(want.row().getEndLine());
+                    moved.add(new Pending(chunk, want.text()));
+                }
+            }
+            List<Pending> toAdd = wanted.entrySet().stream()
+                    .filter(chunk -> !known.contains(chunk.getKey()))
+                    .map(Map.Entry::getValue)
+                    .toList();
+            toAdd.forEach(chunk -> toEmbed.add(toDocument(chunk)));
+            // Added again under the same id, which replaces the stored document
+            moved.forEach(chunk -> toEmbed.add(toDocument(chunk)));
+            plans.add(new FilePlan(path, toAdd, moved, stale));
+        }
+
+        Set<String> notStored = embed(toEmbed);
+
+        // Record a file only when all of its new vectors are stored; otherwise take back the ones that are
+        int embedded = 0;
+        int moved = 0;
+        int removed = 0;
+        List<String> orphans = new ArrayList<>();
+        for (FilePlan plan : plans) {
+            List<String> added = plan.toAdd().stream().map(chunk -> chunk.row().getId()).toList();
+            if (added.stream().anyMatch(notStored::contains)
+                    || plan.moved().stream().anyMatch(chunk -> notStored.contains(chunk.row().getId()))) {
+                failed.add(plan.path());
+                // Moved chunks are still recorded, whichever line range their document has; the retry fixes both
+                orphans.addAll(added.stream().filter(id -> !notStored.contains(id)).toList());
+                continue;
+            }
+            try {
+                List<IndexedChunk> rows = new ArrayList<>();
+                plan.toAdd().forEach(chunk -> rows.add(chunk.row()));
+                plan.moved().forEach(chunk -> rows.add(chunk.row()));
+                indexedChunkRepo.saveAll(rows);
+                // Add before delete, so retrieval never sees a file with no chunks at all
+                if (!plan.stale().isEmpty()) {
+                    vectorStore.delete(plan.stale());
+                    indexedChunkRepo.deleteAllByIdInBatch(plan.stale());
+                }
+                embedded += added.size();
+                moved += plan.moved().size();
+                removed += plan.stale().size();
+            } catch (RuntimeException e) {
+                log.debug("Could not record chunks of {}: {}", plan.path(), e.getMessage());
+                failed.add(plan.path());
+            }
+        }
+        if (!orphans.isEmpty()) {
+            try {
+                vectorStore.delete(orphans);
+            } catch (RuntimeException e) {
+                log.warn("Could not remove {} vectors of failed files: {}", orphans.size(), e.getMessage());
+            }
+        }
+        return new int[]{embedded, moved, removed};
+    }
+
+    private Map<String, Pending> desiredChunks(String path) {
+        Map<String, Pending> chunks = new LinkedHashMap<>();
+        String content;
+        try {
+            if (fileService.fileSize(path) > maxFileBytes) {
+                return chunks;
+            }
+            content = fileService.readFile(path);
+        } catch (IOException e) {
+            // Deleted or unreadable: no chunks wanted
+            return chunks;
+        }
+        if (content.indexOf('\0') >= 0) {
+            return chunks;
+        }
+
+        for (CodeChunk chunk : chunker.chunk(path, content)) {
+            String hash = sha256(chunk.text());
+            String id = UUID.nameUUIDFromBytes((path + '\0' + hash).getBytes(StandardCharsets.UTF_8)).toString();
+            // Identical chunks within one file share an id; keep the first
+            chunks.putIfAbsent(id, new Pending(IndexedChunk.builder()
+                    .id(id)
+                    .filePath(path)
+                    .contentHash(hash)
+                    .startLine(chunk.startLine())
+                    .endLine(chunk.endLine())
+                    .build(), chunk.text()));
+        }
+        return chunks;
+    }
+
+    private static Document toDocument(Pending chunk) {
+        IndexedChunk row = chunk.row();
+        return new Document(row.getId(), chunk.text(), Map.of(
+                "path", row.getFilePath(),
+                "startLine", row.getStartLine(),
+                "endLine", row.getEndLine(),
+                "hash", row.getContentHash()));
+    }
+
+    /**
+     * Add the documents in batches and return the ids of those in batches that failed for good
+     */
+    private Set<String> embed(List<Document> documents) {
+        List<CompletableFuture<List<String>>> batches = new ArrayList<>();
+        for (int from = 0; from < documents.size(); from += batchSize) {
+            List<Document> batch = documents.subList(from, Math.min(from + batchSize, documents.size()));
+            batches.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    addWithRetry(batch);
+                    return List.of();
+                } catch (RuntimeException e) {
+                    log.warn("Embedding batch of {} chunks failed: {}", batch.size(), e.getMessage());
+                    return batch.stream().map(Document::getId).toList();
+                }
+            }, embeddingExecutor));
+        }
+        Set<String> failed = new HashSet<>();
+        batches.forEach(batch -> failed.addAll(batch.join()));
+        return failed;
+    }
+
+    private void addWithRetry(List<Document> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                vectorStore.add(batch);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                // Full jitter: sleep a random time up to the exponential cap
+                long cap = backoffMillis << (attempt - 1);
+                long sleep = ThreadLocalRandom.current().nextLong(cap + 1);
+                log.debug("Embedding batch failed (attempt {}), retrying in {} ms: {}", attempt, sleep, e.getMessage());
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        indexer.shutdownNow();
+        embeddingExecutor.shutdownNow();
+    }
+}
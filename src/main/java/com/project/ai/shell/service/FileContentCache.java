@@ -0,0 +1,83 @@
+package com.project.ai.shell.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache of decoded file contents.
+ * <p>
+ * Entries are weighted by file size and checked against the file's last-modified time and size on every
+ * lookup, so a stale entry is never served even if the file changed behind our back. Files larger than a
+ * quarter of the budget are read straight through and never cached.
+ */
+public class FileContentCache {
+
+    public record Stats(long hits, long misses, long evictions, int entries, long bytes) {
+    }
+
+    private record Entry(long lastModified, long size, String content) {
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long currentBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public FileContentCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public String read(Path file) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        long lastModified = attrs.lastModifiedTime().toMillis();
+
+        synchronized (this) {
+            Entry cached = entries.get(file);
+            if (cached != null && cached.lastModified() == lastModified && cached.size() == attrs.size()) {
+                hits++;
+                return cached.content();
+            }
+            misses++;
+        }
+
+        String content = Files.readString(file);
+        if (attrs.size() <= maxBytes / 4) {
+            put(file, new Entry(lastModified, attrs.size(), content));
+        }
+        return content;
+    }
+
+    private synchronized void put(Path file, Entry entry) {
+        Entry previous = entries.put(file, entry);
+        if (previous != null) {
+            currentBytes -= previous.size();
+        }
+        currentBytes += entry.size();
+
+        Iterator<Map.Entry<Path, Entry>> eldest = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            currentBytes -= eldest.next().getValue().size();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void invalidate(Path file) {
+        Entry removed = entries.remove(file);
+        if (removed != null) {
+            currentBytes -= removed.size();
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, entries.size(), currentBytes);
+    }
+}
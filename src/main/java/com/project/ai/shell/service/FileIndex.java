@@ -0,0 +1,335 @@
+package com.project.ai.shell.service;
+
+import com.project.ai.shell.records.FileInfo;
+import com.project.ai.shell.records.ProjectRoot;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory index of the files under one or more project roots.
+ * <p>
+ * The trees are crawled in parallel once on {@link #start()}, skipping ignored directories entirely,
+ * then kept current by a {@link WatchService}.
+ * If the watcher overflows (or misses something) the periodic rescan brings the index back in line.
+ * Entries are kept sorted by relative path so listings come out in the same order as before.
+ */
+@Slf4j
+public class FileIndex implements Closeable {
+
+    private final List<ProjectRoot> roots;
+    private final Duration rescanInterval;
+    private final DirectoryCrawler crawler;
+    private volatile Map<ProjectRoot, IgnoreMatcher> ignoreMatchers;
+
+    private volatile ConcurrentSkipListMap<String, Long> entries = new ConcurrentSkipListMap<>();
+    // The map a running rescan crawls into; watcher and write updates go to it too, so the swap does not lose them
+    private volatile ConcurrentSkipListMap<String, Long> rescanning;
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile List<FileInfo> snapshot;
+    private volatile long snapshotVersion = -1;
+
+    private WatchService watchService;
+    private Thread watcherThread;
+    private ScheduledExecutorService rescanExecutor;
+
+    public FileIndex(List<ProjectRoot> roots, int parallelism, Duration rescanInterval) {
+        // Longest path first, so nested roots resolve to the most specific one
+        this.roots = roots.stream()
+                .sorted(Comparator.comparingInt((ProjectRoot r) -> r.path().getNameCount()).reversed())
+                .toList();
+        this.rescanInterval = rescanInterval;
+        this.crawler = new DirectoryCrawler(parallelism);
+        this.ignoreMatchers = loadIgnoreMatchers();
+    }
+
+    /**
+     * Build the index and start watching for changes
+     */
+    public void start() throws IOException {
+        try {
+            watchService = roots.get(0).path().getFileSystem().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("File watching unavailable, relying on periodic rescans: {}", e.getMessage());
+        }
+
+        rescan();
+
+        if (watchService != null) {
+            watcherThread = new Thread(this::processEvents, "file-index-watcher");
+            watcherThread.setDaemon(true);
+            watcherThread.start();
+        }
+
+        if (!rescanInterval.isZero() && !rescanInterval.isNegative()) {
+            rescanExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "file-index-rescan");
+                t.setDaemon(true);
+                return t;
+            });
+            long millis = rescanInterval.toMillis();
+            rescanExecutor.scheduleWithFixedDelay(this::rescanQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Crawl the whole tree again and swap in the fresh result (ignore files are re-read too)
+     */
+    public synchronized void rescan() throws IOException {
+        long start = System.nanoTime();
+        ignoreMatchers = loadIgnoreMatchers();
+        ConcurrentSkipListMap<String, Long> fresh = new ConcurrentSkipListMap<>();
+        rescanning = fresh;
+        try {
+            for (ProjectRoot root : roots) {
+                if (!Files.isDirectory(root.path())) {
+                    throw new IOException("Project root is not a directory: " + root.path());
+                }
+                scanInto(root, root.path(), fresh);
+            }
+            // Swap before clearing rescanning: an update that no longer sees rescanning then sees the fresh map
+            entries = fresh;
+        } finally {
+            rescanning = null;
+        }
+        version.incrementAndGet();
+        log.info("Indexed {} files under {} in {} ms", fresh.size(), roots, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void rescanQuietly() {
+        try {
+            rescan();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Periodic rescan of {} failed: {}", roots, e.getMessage());
+        }
+    }
+
+    private Map<ProjectRoot, IgnoreMatcher> loadIgnoreMatchers() {
+        Map<ProjectRoot, IgnoreMatcher> matchers = new ConcurrentHashMap<>();
+        for (ProjectRoot root : roots) {
+            matchers.put(root, IgnoreMatcher.load(root.path()));
+        }
+        return matchers;
+    }
+
+    private void scanInto(ProjectRoot root, Path dir, Map<String, Long> target) {
+        crawler.crawl(dir, ignoreMatchers.get(root), this::register,
+                (file, attrs) -> target.put(relativize(root, file), attrs.lastModifiedTime().toMillis()));
+    }
+
+    private void register(Path dir) {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            WatchKey key = dir.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirs.put(key, dir);
+        } catch (IOException e) {
+            log.debug("Could not watch {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path dir = watchedDirs.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    log.debug("Watch overflow for {}, rescanning", roots);
+                    rescanQuietly();
+                    continue;
+                }
+                if (dir != null) {
+                    handle(event.kind(), dir.resolve((Path) event.context()));
+                }
+            }
+
+            if (!key.reset()) {
+                watchedDirs.remove(key);
+            }
+        }
+    }
+
+    private void handle(WatchEvent.Kind<?> kind, Path path) {
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            remove(path);
+        } else if (Files.isDirectory(path)) {
+            ProjectRoot root = rootOf(path);
+            if (kind == StandardWatchEventKinds.ENTRY_CREATE && root != null && includesDirectory(root, path)) {
+                Map<String, Long> found = new ConcurrentHashMap<>();
+                scanInto(root, path, found);
+                targets().forEach(target -> target.putAll(found));
+                version.incrementAndGet();
+            }
+        } else {
+            refresh(path);
+        }
+    }
+
+    /**
+     * Bring a single path up to date (called by the watcher and after our own writes)
+     */
+    public void refresh(Path path) {
+        ProjectRoot root = rootOf(path);
+        if (root == null) {
+            return;
+        }
+        if (Files.isRegularFile(path) && ignoreMatchers.get(root).includes(path)) {
+            String key = relativize(root, path);
+            long modified = lastModified(path);
+            targets().forEach(target -> target.put(key, modified));
+            version.incrementAndGet();
+        } else {
+            remove(path);
+        }
+    }
+
+    private boolean includesDirectory(ProjectRoot root, Path dir) {
+        IgnoreMatcher matcher = ignoreMatchers.get(root);
+        for (Path current = dir; current != null && !current.equals(root.path()); current = current.getParent()) {
+            if (matcher.isIgnoredDirectory(current)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void remove(Path path) {
+        ProjectRoot root = rootOf(path);
+        if (root == null || path.equals(root.path())) {
+            return;
+        }
+        String key = relativize(root, path);
+        boolean changed = false;
+        for (ConcurrentSkipListMap<String, Long> target : targets()) {
+            changed |= target.remove(key) != null;
+            NavigableMap<String, Long> children = underDirectory(target, key);
+            if (!children.isEmpty()) {
+                children.clear();
+                changed = true;
+            }
+        }
+        if (changed) {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * The maps an update goes to: the live one, and the one a running rescan is filling
+     */
+    private List<ConcurrentSkipListMap<String, Long>> targets() {
+        // rescanning first: once it reads null the swap has happened, so entries is the fresh map
+        ConcurrentSkipListMap<String, Long> building = rescanning;
+        ConcurrentSkipListMap<String, Long> current = entries;
+        return building == null || building == current ? List.of(current) : List.of(current, building);
+    }
+
+    /**
+     * All indexed files with their last-modified time, sorted by relative path
+     */
+    public List<FileInfo> files() {
+        long current = version.get();
+        List<FileInfo> cached = snapshot;
+        if (cached != null && snapshotVersion == current) {
+            return cached;
+        }
+
+        List<FileInfo> list = new ArrayList<>(entries.size());
+        entries.forEach((path, modified) -> list.add(new FileInfo(path, modified)));
+        List<FileInfo> fresh = Collections.unmodifiableList(list);
+        snapshot = fresh;
+        snapshotVersion = current;
+        return fresh;
+    }
+
+    /**
+     * Relative paths of the indexed files under the given relative directory ("" for the root)
+     */
+    public List<String> pathsUnder(String relativeDir) {
+        String dir = relativeDir.endsWith(File.separator)
+                ? relativeDir.substring(0, relativeDir.length() - 1)
+                : relativeDir;
+        NavigableMap<String, Long> view = dir.isEmpty() ? entries : underDirectory(entries, dir);
+        return new ArrayList<>(view.keySet());
+    }
+
+    /**
+     * Bumped on every change, so callers can cache anything derived from the index
+     */
+    public long version() {
+        return version.get();
+    }
+
+    private static NavigableMap<String, Long> underDirectory(ConcurrentSkipListMap<String, Long> map, String relativeDir) {
+        String prefix = relativeDir + File.separator;
+        return map.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private ProjectRoot rootOf(Path path) {
+        for (ProjectRoot root : roots) {
+            if (path.startsWith(root.path())) {
+                return root;
+            }
+        }
+        return null;
+    }
+
+    private static String relativize(ProjectRoot root, Path path) {
+        return root.prefix() + root.path().relativize(path);
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        crawler.close();
+        if (rescanExecutor != null) {
+            rescanExecutor.shutdownNow();
+        }
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+    }
+}
@@ -1,51 +1,154 @@
 package com.project.ai.shell.service;
 
 import com.project.ai.shell.records.FileInfo;
+import com.project.ai.shell.records.ProjectRoot;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Comparator;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Service
 @Slf4j
 public class FileService {
 
     private final Path projectRoot;
-
-    public FileService() {
-        // Get the project root directory
+    private final List<ProjectRoot> roots;
+    private final FileIndex index;
+    private final long contentIndexMaxFileBytes;
+    private final RangeReader rangeReader = new RangeReader(64);
+    private final FileContentCache contentCache;
+    private final PatchApplier patchApplier = new PatchApplier();
+    private final boolean fsync;
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    // Striped by path: writes to one file are serialized (a patch reads, edits and writes back), others run in parallel
+    private final Lock[] writeLocks = new Lock[64];
+
+    // Each derived index has its own refresh lock; see updatedContentIndex()
+    private final ReentrantLock contentIndexRefresh = new ReentrantLock();
+    private volatile TrigramIndex contentIndex;
+    private volatile long contentIndexVersion = -1;
+    private final ReentrantLock symbolIndexRefresh = new ReentrantLock();
+    private volatile SymbolIndex symbolIndex;
+    private volatile long symbolIndexVersion = -1;
+
+    private final int parallelism;
+    private final Duration rescanInterval;
+    private final DataSize contentCacheSize;
+
+    @Autowired
+    public FileService(@Value("${shell.index.parallelism:0}") int parallelism,
+                       @Value("${shell.index.rescan-interval:PT5M}") Duration rescanInterval,
+                       @Value("${shell.index.content.max-file-size:1048576}") long contentIndexMaxFileBytes,
+                       @Value("${shell.files.cache.max-size:64MB}") DataSize contentCacheSize,
+                       @Value("${shell.files.fsync:false}") boolean fsync) throws IOException {
+        // Get the project root directory (project.path may list several roots, comma separated)
 //        this.projectRoot = Paths.get(System.getProperty("user.dir"));
-        this.projectRoot = Paths.get(System.getProperty("project.path", System.getProperty("user.dir")));
-        log.info("Project root set to: {}", projectRoot);
+        this(System.getProperty("project.path", System.getProperty("user.dir")),
+                parallelism, rescanInterval, contentIndexMaxFileBytes, contentCacheSize, fsync);
+    }
+
+    private FileService(String projectPath, int parallelism, Duration rescanInterval, long contentIndexMaxFileBytes,
+                        DataSize contentCacheSize, boolean fsync) throws IOException {
+        this.roots = parseRoots(projectPath);
+        this.projectRoot = roots.get(0).path();
+        log.info("Project root set to: {}", roots.size() == 1 ? projectRoot : roots);
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.index = new FileIndex(roots, threads, rescanInterval);
+        this.index.start();
+        this.contentIndexMaxFileBytes = contentIndexMaxFileBytes;
+        this.contentCache = new FileContentCache(contentCacheSize.toBytes());
+        this.fsync = fsync;
+        this.parallelism = parallelism;
+        this.rescanInterval = rescanInterval;
+        this.contentCacheSize = contentCacheSize;
+        for (int i = 0; i < writeLocks.length; i++) {
+            writeLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * A separate service (own index, caches and watcher) for other project roots, with the same settings.
+     * The caller owns it and must close it.
+     */
+    public FileService forProjectPath(String projectPath) throws IOException {
+        return new FileService(projectPath, parallelism, rescanInterval, contentIndexMaxFileBytes, contentCacheSize, fsync);
+    }
+
+    private static List<ProjectRoot> parseRoots(String property) {
+        List<Path> paths = new ArrayList<>();
+        for (String part : property.split(",")) {
+            if (!part.isBlank()) {
+                paths.add(Paths.get(part.strip()).toAbsolutePath().normalize());
+            }
+        }
+        if (paths.size() == 1) {
+            return List.of(new ProjectRoot("", paths.get(0)));
+        }
+
+        // Several roots: prefix each with its directory name, made unique if two roots share a name
+        List<ProjectRoot> roots = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (Path path : paths) {
+            String base = String.valueOf(path.getFileName());
+            String name = base;
+            for (int i = 2; !names.add(name); i++) {
+                name = base + "-" + i;
+            }
+            roots.add(new ProjectRoot(name + File.separator, path));
+        }
+        return roots;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        index.close();
+        if (contentIndex != null) {
+            contentIndex.close();
+        }
     }
 
     /**
      * List all files in the project, excluding common directories like target, .git, etc.
      */
     public List<String> listAllFiles() throws IOException {
-        try (Stream<Path> paths = Files.walk(projectRoot)) {
-            return paths
-                    .filter(Files::isRegularFile)
-                    .filter(this::shouldIncludeFile)
-                    .map(projectRoot::relativize)
-                    .map(Path::toString)
-                    .sorted()
-                    .collect(Collectors.toList());
-        }
+        return index.pathsUnder("");
     }
 
     /**
      * List files in a specific directory
      */
     public List<String> listFilesInDirectory(String directory) throws IOException {
-        Path dirPath = projectRoot.resolve(directory);
+        if (directory.isBlank() || directory.equals(".")) {
+            return listAllFiles();
+        }
+        Path dirPath = resolve(directory);
 
         if (!Files.exists(dirPath)) {
             throw new IOException("Directory does not exist: " + directory);
@@ -55,39 +158,13 @@ public class FileService {
             throw new IOException("Path is not a directory: " + directory);
         }
 
-        try (Stream<Path> paths = Files.walk(dirPath)) {
-            return paths
-                    .filter(Files::isRegularFile)
-                    .filter(this::shouldIncludeFile)
-                    .map(projectRoot::relativize)
-                    .map(Path::toString)
-                    .sorted()
-                    .collect(Collectors.toList());
-        }
+        return index.pathsUnder(relativize(dirPath));
     }
 
 
     //getiing all files with info
     public List<FileInfo> listAllFilesWithTime() throws IOException {
-        try (Stream<Path> paths = Files.walk(projectRoot)) {
-            return paths
-                    .filter(Files::isRegularFile)
-                    .filter(this::shouldIncludeFile)
-                    .map(path -> new FileInfo(
-                            projectRoot.relativize(path).toString(),
-                            getLastModifiedTime(path)
-                    ))
-                    .sorted(Comparator.comparing(FileInfo::relativePath))
-                    .collect(Collectors.toList());
-        }
-    }
-
-    private long getLastModifiedTime(Path path) {
-        try {
-            return Files.getLastModifiedTime(path).toMillis();
-        } catch (IOException e) {
-            return 0L;
-        }
+        return index.files();
     }
 
 
@@ -95,45 +172,52 @@ public class FileService {
      * List only Java files
      */
     public List<String> listJavaFiles() throws IOException {
-        try (Stream<Path> paths = Files.walk(projectRoot)) {
-            return paths
-                    .filter(Files::isRegularFile)
-                    .filter(p -> p.toString().endsWith(".java"))
-                    .filter(this::shouldIncludeFile)
-                    .map(projectRoot::relativize)
-                    .map(Path::toString)
-                    .sorted()
-                    .collect(Collectors.toList());
-        }
+        return index.pathsUnder("").stream()
+                .filter(p -> p.endsWith(".java"))
+                .collect(Collectors.toList());
     }
 
     /**
      * Read the content of a file
      */
     public String readFile(String relativePath) throws IOException {
-        Path filePath = projectRoot.resolve(relativePath);
+        return counted(contentCache.read(resolveFile(relativePath)));
+    }
 
-        if (!Files.exists(filePath)) {
-            throw new IOException("File does not exist: " + relativePath);
-        }
+    /**
+     * Read lines startLine..endLine (1-based, inclusive) without loading the whole file
+     */
+    public String readLines(String relativePath, int startLine, int endLine) throws IOException {
+        return counted(rangeReader.readLines(resolveFile(relativePath), startLine, endLine));
+    }
 
-        if (!Files.isRegularFile(filePath)) {
-            throw new IOException("Path is not a file: " + relativePath);
-        }
+    /**
+     * Read length bytes starting at offset without loading the whole file
+     */
+    public String readBytes(String relativePath, long offset, int length) throws IOException {
+        return counted(rangeReader.readBytes(resolveFile(relativePath), offset, length));
+    }
 
-        // Security check: ensure the file is within project root
-        if (!filePath.normalize().startsWith(projectRoot.normalize())) {
-            throw new IOException("Access denied: File is outside project directory");
-        }
+    /**
+     * The last line from startLine on that keeps the range within maxBytes (see {@link RangeReader#lastLineWithin})
+     */
+    public int lastLineWithin(String relativePath, int startLine, int endLine, long maxBytes) throws IOException {
+        return rangeReader.lastLineWithin(resolveFile(relativePath), startLine, endLine, maxBytes);
+    }
+
+    public int lineCount(String relativePath) throws IOException {
+        return rangeReader.lineCount(resolveFile(relativePath));
+    }
 
-        return Files.readString(filePath);
+    public long fileSize(String relativePath) throws IOException {
+        return Files.size(resolveFile(relativePath));
     }
 
     /**
      * Get file information
      */
     public String getFileInfo(String relativePath) throws IOException {
-        Path filePath = projectRoot.resolve(relativePath);
+        Path filePath = resolve(relativePath);
 
         if (!Files.exists(filePath)) {
             throw new IOException("File does not exist: " + relativePath);
@@ -154,31 +238,86 @@ public class FileService {
      * Search for files by name pattern
      */
     public List<String> searchFiles(String pattern) throws IOException {
-        String regex = pattern.replace("*", ".*").replace("?", ".");
+        Pattern regex = Pattern.compile(pattern.replace("*", ".*").replace("?", "."));
+
+        return index.pathsUnder("").stream()
+                .filter(p -> regex.matcher(p.substring(p.lastIndexOf(File.separatorChar) + 1)).matches())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Search file contents for a literal text, returning matching lines as "path:line: text".
+     * Backed by a trigram index stored under .shell/, brought up to date before each search.
+     */
+    public List<String> searchContent(String query, boolean ignoreCase, int maxResults) throws IOException {
+        if (query == null || query.isEmpty()) {
+            throw new IOException("Search text must not be empty");
+        }
+        return updatedContentIndex().search(query, ignoreCase, maxResults, this::resolve);
+    }
 
-        try (Stream<Path> paths = Files.walk(projectRoot)) {
-            return paths
-                    .filter(Files::isRegularFile)
-                    .filter(this::shouldIncludeFile)
-                    .filter(p -> p.getFileName().toString().matches(regex))
-                    .map(projectRoot::relativize)
-                    .map(Path::toString)
-                    .sorted()
-                    .collect(Collectors.toList());
+    /**
+     * The content index, brought up to date with the file index. When another thread is already refreshing it,
+     * the last complete state is searched instead of waiting (the index has its own read/write lock); only the
+     * very first build is waited for.
+     */
+    private TrigramIndex updatedContentIndex() {
+        long version = index.version();
+        if (version == contentIndexVersion) {
+            return contentIndex;
+        }
+        if (contentIndexVersion < 0) {
+            contentIndexRefresh.lock();
+        } else if (!contentIndexRefresh.tryLock()) {
+            return contentIndex;
+        }
+        try {
+            if (contentIndex == null) {
+                contentIndex = new TrigramIndex(projectRoot.resolve(".shell").resolve("trigram.idx"), contentIndexMaxFileBytes);
+            }
+            if (version != contentIndexVersion) {
+                contentIndex.update(index.files(), this::resolve);
+                contentIndexVersion = version;
+            }
+            return contentIndex;
+        } finally {
+            contentIndexRefresh.unlock();
         }
     }
 
     /**
-     * Filter out files we don't want to include (like target/, .git/, etc.)
+     * The Java symbol index, brought up to date with the file index first (only changed files are parsed).
+     * Refreshed like {@link #updatedContentIndex()}
      */
-    private boolean shouldIncludeFile(Path path) {
-        String pathStr = path.toString();
-        return !pathStr.contains("target" + System.getProperty("file.separator")) &&
-                !pathStr.contains(".git" + System.getProperty("file.separator")) &&
-                !pathStr.contains(".idea" + System.getProperty("file.separator")) &&
-                !pathStr.contains("node_modules" + System.getProperty("file.separator")) &&
-                !pathStr.contains(".mvn" + System.getProperty("file.separator")) &&
-                !pathStr.endsWith(".class");
+    public SymbolIndex symbols() {
+        long version = index.version();
+        if (version == symbolIndexVersion) {
+            return symbolIndex;
+        }
+        if (symbolIndexVersion < 0) {
+            symbolIndexRefresh.lock();
+        } else if (!symbolIndexRefresh.tryLock()) {
+            return symbolIndex;
+        }
+        try {
+            if (symbolIndex == null) {
+                symbolIndex = new SymbolIndex(contentIndexMaxFileBytes);
+            }
+            if (version != symbolIndexVersion) {
+                symbolIndex.update(index.files(), this::resolve);
+                symbolIndexVersion = version;
+            }
+            return symbolIndex;
+        } finally {
+            symbolIndexRefresh.unlock();
+        }
+    }
+
+    /**
+     * Lines in Java code (not comments or strings) using the identifier, as "path:line: text"
+     */
+    public List<String> findReferences(String name, int maxResults) {
+        return symbols().findReferences(name, maxResults, this::resolve);
     }
 
     /**
@@ -196,25 +335,217 @@ public class FileService {
      * Write content to a file (creates or overwrites)
      */
     public void writeFile(String relativePath, String content) throws IOException {
-        Path filePath = projectRoot.resolve(relativePath);
+        Path filePath = resolve(relativePath);
+        Lock lock = writeLock(filePath);
+        lock.lock();
+        try {
+            // Create parent directories if they don't exist
+            Path parentDir = filePath.getParent();
+            if (parentDir != null && !Files.exists(parentDir)) {
+                Files.createDirectories(parentDir);
+            }
+
+            // Write the content to the file
+            written(filePath, writeAtomically(filePath, content));
+        } finally {
+            lock.unlock();
+        }
+        log.info("File written successfully: {}", relativePath);
+    }
+
+    /**
+     * Apply a unified diff or SEARCH/REPLACE blocks to an existing file and return the number of edits
+     */
+    public int patchFile(String relativePath, String patch) throws IOException {
+        Path filePath = resolveFile(relativePath);
+        PatchApplier.Result result;
+        Lock lock = writeLock(filePath);
+        lock.lock();
+        try {
+            try {
+                result = patchApplier.apply(contentCache.read(filePath), patch);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Patch not applied to " + relativePath + ": " + e.getMessage(), e);
+            }
+
+            written(filePath, writeAtomically(filePath, result.content()));
+        } finally {
+            lock.unlock();
+        }
+        log.info("File patched successfully: {} ({} edits)", relativePath, result.edits());
+        return result.edits();
+    }
+
+    private Lock writeLock(Path filePath) {
+        return writeLocks[Math.floorMod(filePath.hashCode(), writeLocks.length)];
+    }
+
+    private void written(Path filePath, Path target) {
+        contentCache.invalidate(filePath);
+        index.refresh(filePath);
+        if (!target.equals(filePath)) {
+            contentCache.invalidate(target);
+            index.refresh(target);
+        }
+    }
+
+    /**
+     * Write to a temp file next to the target and rename it over the target, so readers (and a crash) never
+     * see a half-written file. A symlink is written through (its target is replaced, the link kept) and the
+     * target's permissions are carried over. Returns the path actually replaced.
+     */
+    private Path writeAtomically(Path filePath, String content) throws IOException {
+        Path target = writeTarget(filePath);
+        Path temp = target.resolveSibling("." + target.getFileName() + "." + System.nanoTime() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                ByteBuffer bytes = StandardCharsets.UTF_8.encode(content);
+                bytesWritten.add(bytes.remaining());
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                if (fsync) {
+                    channel.force(true);
+                }
+            }
+            PosixFileAttributeView permissions = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+            if (permissions != null && Files.exists(target)) {
+                Files.setPosixFilePermissions(temp, permissions.readAttributes().permissions());
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return target;
+    }
+
+    /**
+     * The file a write to this path should replace: the path itself, or the final target of a symlink, which
+     * must still be inside a project root
+     */
+    private Path writeTarget(Path filePath) throws IOException {
+        if (!Files.isSymbolicLink(filePath)) {
+            return filePath;
+        }
+        Path target = Files.exists(filePath)
+                ? filePath.toRealPath()
+                : filePath.resolveSibling(Files.readSymbolicLink(filePath)).normalize();
+        for (ProjectRoot root : roots) {
+            if (target.startsWith(root.path()) || target.startsWith(root.path().toRealPath())) {
+                return target;
+            }
+        }
+        throw new IOException("Access denied: " + filePath.getFileName() + " links outside the project directory");
+    }
+
+    /**
+     * Resolve a relative path (as returned by the listings) to a file inside one of the project roots
+     */
+    private Path resolve(String relativePath) throws IOException {
+        ProjectRoot root = roots.get(0);
+        String rest = relativePath;
+        if (roots.size() > 1) {
+            root = roots.stream()
+                    .filter(r -> relativePath.startsWith(r.prefix()))
+                    .findFirst()
+                    .orElseThrow(() -> new IOException("Path does not start with a project root: " + relativePath));
+            rest = relativePath.substring(root.prefix().length());
+        }
 
         // Security check: ensure the file is within project root
-        if (!filePath.normalize().startsWith(projectRoot.normalize())) {
+        Path filePath = root.path().resolve(rest).normalize();
+        if (!filePath.startsWith(root.path())) {
             throw new IOException("Access denied: File is outside project directory");
         }
+        return filePath;
+    }
+
+    /**
+     * Resolve a relative path that must name an existing regular file
+     */
+    private Path resolveFile(String relativePath) throws IOException {
+        Path filePath = resolve(relativePath);
 
-        // Create parent directories if they don't exist
-        Path parentDir = filePath.getParent();
-        if (parentDir != null && !Files.exists(parentDir)) {
-            Files.createDirectories(parentDir);
+        if (!Files.exists(filePath)) {
+            throw new IOException("File does not exist: " + relativePath);
         }
 
-        // Write the content to the file
-        Files.writeString(filePath, content);
-        log.info("File written successfully: {}", relativePath);
+        if (!Files.isRegularFile(filePath)) {
+            throw new IOException("Path is not a file: " + relativePath);
+        }
+
+        return filePath;
+    }
+
+    private String relativize(Path path) {
+        for (ProjectRoot root : roots) {
+            if (path.startsWith(root.path())) {
+                return root.prefix() + root.path().relativize(path);
+            }
+        }
+        return path.toString();
+    }
+
+    /**
+     * Hit/miss/eviction counters of the file content cache
+     */
+    public FileContentCache.Stats contentCacheStats() {
+        return contentCache.stats();
+    }
+
+    /**
+     * UTF-8 bytes returned by the read methods, whether from the cache or from disk
+     */
+    public long bytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long bytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    private String counted(String content) {
+        bytesRead.add(utf8Length(content));
+        return content;
+    }
+
+    /**
+     * Encoded size without encoding, so counting a cached read does not copy it
+     */
+    private static long utf8Length(String content) {
+        long bytes = 0;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < content.length() && Character.isLowSurrogate(content.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
     }
 
     public Path getProjectRoot() {
         return projectRoot;
     }
+
+    public List<ProjectRoot> getProjectRoots() {
+        return roots;
+    }
+
+    /**
+     * Changes whenever the file index changes, for callers caching derived data
+     */
+    public long indexVersion() {
+        return index.version();
+    }
 }
\ No newline at end of file
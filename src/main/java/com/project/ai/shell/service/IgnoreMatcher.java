@@ -0,0 +1,192 @@
+package com.project.ai.shell.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which files and directories are left out of the project listing.
+ * <p>
+ * Combines the built-in exclusions (target/, .git/, node_modules/, ...) with the patterns from the
+ * root {@code .gitignore} and {@code .shellignore}. Patterns are compiled once when the matcher is loaded,
+ * so checking a path is a handful of regex matches against its relative form.
+ */
+@Slf4j
+public class IgnoreMatcher {
+
+    private static final Set<String> IGNORED_DIRECTORIES = Set.of("target", ".git", ".idea", "node_modules", ".mvn", ".shell");
+    private static final String IGNORED_EXTENSION = ".class";
+    private static final List<String> IGNORE_FILES = List.of(".gitignore", ".shellignore");
+    private static final boolean UNIX_SEPARATOR = File.separatorChar == '/';
+
+    private final Path root;
+    private final List<Rule> rules;
+
+    private record Rule(Pattern pattern, boolean negated, boolean directoryOnly) {
+    }
+
+    IgnoreMatcher(Path root, List<String> patterns) {
+        this.root = root;
+        this.rules = new ArrayList<>();
+        for (String line : patterns) {
+            Rule rule = compile(line);
+            if (rule != null) {
+                rules.add(rule);
+            }
+        }
+    }
+
+    /**
+     * Load the matcher for a project root, reading its ignore files if present
+     */
+    public static IgnoreMatcher load(Path root) {
+        List<String> patterns = new ArrayList<>();
+        for (String name : IGNORE_FILES) {
+            Path file = root.resolve(name);
+            if (Files.isRegularFile(file)) {
+                try {
+                    patterns.addAll(Files.readAllLines(file));
+                } catch (IOException e) {
+                    log.warn("Could not read {}: {}", file, e.getMessage());
+                }
+            }
+        }
+        return new IgnoreMatcher(root, patterns);
+    }
+
+    /**
+     * Whether the walker should skip this directory and everything below it
+     */
+    public boolean isIgnoredDirectory(Path dir) {
+        if (IGNORED_DIRECTORIES.contains(String.valueOf(dir.getFileName()))) {
+            return true;
+        }
+        return matches(relative(dir), true);
+    }
+
+    /**
+     * Whether a file inside a directory that is not itself ignored should be left out
+     */
+    public boolean isIgnoredFile(Path file) {
+        if (file.toString().endsWith(IGNORED_EXTENSION)) {
+            return true;
+        }
+        return matches(relative(file), false);
+    }
+
+    /**
+     * Full check for a single file, including its parent directories. Used for watch events,
+     * where there is no walker pruning the parents for us.
+     */
+    public boolean includes(Path file) {
+        if (isIgnoredFile(file)) {
+            return false;
+        }
+        for (Path dir = file.getParent(); dir != null && dir.startsWith(root) && !dir.equals(root); dir = dir.getParent()) {
+            if (isIgnoredDirectory(dir)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matches(String relativePath, boolean directory) {
+        boolean ignored = false;
+        for (Rule rule : rules) {
+            if (rule.directoryOnly() && !directory) {
+                continue;
+            }
+            if (rule.pattern().matcher(relativePath).matches()) {
+                ignored = !rule.negated();
+            }
+        }
+        return ignored;
+    }
+
+    private String relative(Path path) {
+        String relative = root.relativize(path).toString();
+        return UNIX_SEPARATOR ? relative : relative.replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Translate one gitignore line into a rule, or null for blanks and comments
+     */
+    private static Rule compile(String line) {
+        String pattern = line.strip();
+        if (pattern.isEmpty() || pattern.startsWith("#")) {
+            return null;
+        }
+
+        boolean negated = pattern.startsWith("!");
+        if (negated) {
+            pattern = pattern.substring(1);
+        }
+
+        boolean directoryOnly = pattern.endsWith("/");
+        if (directoryOnly) {
+            pattern = pattern.substring(0, pattern.length() - 1);
+        }
+
+        // A pattern without a slash matches at any depth, one with a slash is anchored at the root
+        boolean anchored = pattern.contains("/");
+        if (pattern.startsWith("/")) {
+            pattern = pattern.substring(1);
+        }
+        if (pattern.isEmpty()) {
+            return null;
+        }
+
+        String regex = (anchored ? "" : "(?:.*/)?") + globToRegex(pattern);
+        return new Rule(Pattern.compile(regex), negated, directoryOnly);
+    }
+
+    private static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*' -> {
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        i++;
+                        if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                            i++;
+                            regex.append("(?:.*/)?");
+                        } else {
+                            regex.append(".*");
+                        }
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                }
+                case '?' -> regex.append("[^/]");
+                case '[' -> {
+                    int close = glob.indexOf(']', i + 1);
+                    if (close < 0) {
+                        regex.append("\\[");
+                    } else {
+                        String set = glob.substring(i + 1, close);
+                        if (set.startsWith("!")) {
+                            set = "^" + set.substring(1);
+                        }
+                        regex.append('[').append(set.replace("\\", "\\\\")).append(']');
+                        i = close;
+                    }
+                }
+                case '\\' -> {
+                    if (i + 1 < glob.length()) {
+                        regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                    }
+                }
+                default -> regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return regex.toString();
+    }
+}
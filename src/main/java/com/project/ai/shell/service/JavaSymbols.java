@@ -0,0 +1,417 @@
+package com.project.ai.shell.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Declarations, imports, identifiers and calls of one Java source file.
+ * <p>
+ * Not a full parser: a lexer that skips comments and literals, plus a scope stack that tells type bodies from
+ * method bodies. Within a type body the tokens up to a '{', ';' or '=' are one member declaration; inside
+ * method bodies only identifiers followed by '(' are of interest (calls). That is enough for outlines,
+ * definitions and references, and it never fails on code that does not compile.
+ */
+final class JavaSymbols {
+
+    enum Kind { CLASS, INTERFACE, ENUM, RECORD, ANNOTATION, METHOD, CONSTRUCTOR, FIELD, ENUM_CONSTANT }
+
+    /**
+     * A declaration; owner is the enclosing type ("Outer.Inner"), empty for top-level types
+     */
+    record Symbol(Kind kind, String name, String owner, String path, int line, String signature) {
+
+        String qualifiedName() {
+            return owner.isEmpty() ? name : owner + "." + name;
+        }
+
+        boolean isType() {
+            return kind.ordinal() <= Kind.ANNOTATION.ordinal();
+        }
+    }
+
+    /**
+     * Everything the index keeps for a file; calls maps "Owner.method" to the names it calls
+     */
+    record FileSymbols(String packageName, List<String> imports, List<Symbol> symbols,
+                       Map<String, Set<String>> calls, Set<String> identifiers) {
+    }
+
+    record Token(String text, int line, int start, int end, boolean identifier) {
+    }
+
+    private static final Set<String> KEYWORDS = Set.of(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const", "continue",
+            "default", "do", "double", "else", "enum", "extends", "final", "finally", "float", "for", "goto", "if",
+            "implements", "import", "instanceof", "int", "interface", "long", "native", "new", "package", "private",
+            "protected", "public", "return", "short", "static", "strictfp", "super", "switch", "synchronized", "this",
+            "throw", "throws", "transient", "try", "void", "volatile", "while", "true", "false", "null", "var",
+            "record", "yield", "sealed", "permits", "non-sealed");
+
+    private static final Map<String, Kind> TYPE_KEYWORDS = Map.of(
+            "class", Kind.CLASS, "interface", Kind.INTERFACE, "enum", Kind.ENUM, "record", Kind.RECORD);
+
+    private enum ScopeKind { TYPE, METHOD, BLOCK }
+
+    private static final class Scope {
+        final ScopeKind kind;
+        final String name;
+        final Kind typeKind;
+        boolean enumConstants;
+
+        Scope(ScopeKind kind, String name, Kind typeKind) {
+            this.kind = kind;
+            this.name = name;
+            this.typeKind = typeKind;
+            this.enumConstants = typeKind == Kind.ENUM;
+        }
+    }
+
+    private JavaSymbols() {
+    }
+
+    static boolean isKeyword(String identifier) {
+        return KEYWORDS.contains(identifier);
+    }
+
+    static FileSymbols parse(String path, String content) {
+        List<Token> tokens = tokenize(content);
+        String packageName = "";
+        List<String> imports = new ArrayList<>();
+        List<Symbol> symbols = new ArrayList<>();
+        Map<String, Set<String>> calls = new HashMap<>();
+        Set<String> identifiers = new HashSet<>();
+
+        Deque<Scope> scopes = new ArrayDeque<>();
+        List<Token> decl = new ArrayList<>();
+        int parens = 0;
+        boolean initializer = false;
+
+        for (int i = 0; i < tokens.size(); i++) {
+            Token t = tokens.get(i);
+            if (t.identifier() && !isKeyword(t.text())) {
+                identifiers.add(t.text());
+            }
+            Scope top = scopes.peek();
+            boolean memberLevel = top == null || top.kind == ScopeKind.TYPE;
+
+            if (!memberLevel) {
+                if (t.text().equals("{")) {
+                    scopes.push(new Scope(ScopeKind.BLOCK, top.name, null));
+                } else if (t.text().equals("}")) {
+                    scopes.pop();
+                } else if (t.identifier() && !isKeyword(t.text()) && next(tokens, i).equals("(") && top.name != null) {
+                    calls.computeIfAbsent(top.name, k -> new LinkedHashSet<>()).add(t.text());
+                }
+                continue;
+            }
+
+            // Annotations are not part of the declaration
+            if (t.text().equals("@") && !next(tokens, i).equals("interface")) {
+                i = skipAnnotation(tokens, i);
+                continue;
+            }
+
+            if (initializer) {
+                if (t.text().equals("{")) {
+                    scopes.push(new Scope(ScopeKind.BLOCK, null, null));
+                } else if (t.text().equals("}")) {
+                    // Missing ';' before the end of the type; let the brace close it
+                    initializer = false;
+                    i--;
+                } else if (t.text().equals(";")) {
+                    initializer = false;
+                }
+                continue;
+            }
+
+            if (top != null && top.enumConstants) {
+                if (t.text().equals(";")) {
+                    top.enumConstants = false;
+                    continue;
+                }
+                if (t.identifier() && Set.of(",", ";", "(", "{", "}").contains(next(tokens, i))) {
+                    symbols.add(new Symbol(Kind.ENUM_CONSTANT, t.text(), top.name, path, t.line(), t.text()));
+                    if (next(tokens, i).equals("(")) {
+                        i = skipBalanced(tokens, i + 1, "(", ")");
+                    }
+                    if (next(tokens, i).equals("{")) {
+                        scopes.push(new Scope(ScopeKind.BLOCK, null, null));
+                        i++;
+                    }
+                    continue;
+                }
+                if (t.text().equals(",")) {
+                    continue;
+                }
+                if (!t.text().equals("}")) {
+                    // Not a constant list after all (enum without constants)
+                    top.enumConstants = false;
+                }
+            }
+
+            switch (t.text()) {
+                case "(" -> {
+                    parens++;
+                    decl.add(t);
+                }
+                case ")" -> {
+                    parens--;
+                    decl.add(t);
+                }
+                case ";" -> {
+                    if (parens > 0) {
+                        decl.add(t);
+                        break;
+                    }
+                    if (top == null) {
+                        String statement = joined(decl);
+                        if (statement.startsWith("package ")) {
+                            packageName = statement.substring("package ".length());
+                        } else if (statement.startsWith("import ")) {
+                            imports.add(statement.substring("import ".length()));
+                        }
+                    } else if (!decl.isEmpty()) {
+                        Symbol member = member(decl, top, path, content);
+                        if (member != null) {
+                            symbols.add(member);
+                        }
+                    }
+                    decl.clear();
+                }
+                case "=" -> {
+                    if (parens > 0 || top == null) {
+                        decl.add(t);
+                        break;
+                    }
+                    Token name = lastIdentifier(decl);
+                    if (name != null) {
+                        symbols.add(new Symbol(Kind.FIELD, name.text(), top.name, path, name.line(),
+                                signature(content, decl)));
+                    }
+                    decl.clear();
+                    initializer = true;
+                }
+                case "{" -> {
+                    if (parens > 0) {
+                        decl.add(t);
+                        break;
+                    }
+                    scopes.push(open(decl, top, path, content, symbols));
+                    decl.clear();
+                }
+                case "}" -> {
+                    if (!scopes.isEmpty()) {
+                        scopes.pop();
+                    }
+                    decl.clear();
+                    parens = 0;
+                }
+                default -> decl.add(t);
+            }
+        }
+        return new FileSymbols(packageName, imports, symbols, calls, identifiers);
+    }
+
+    /**
+     * The scope a '{' at member level opens: a type, a method or constructor body, or an initializer block
+     */
+    private static Scope open(List<Token> decl, Scope top, String path, String content, List<Symbol> symbols) {
+        String owner = top == null ? "" : top.name;
+        for (int k = 0; k < decl.size() - 1; k++) {
+            Kind kind = TYPE_KEYWORDS.get(decl.get(k).text());
+            if (kind != null && decl.get(k + 1).identifier() && (k == 0 || !decl.get(k - 1).text().equals("."))) {
+                if (kind == Kind.INTERFACE && k > 0 && decl.get(k - 1).text().equals("@")) {
+                    kind = Kind.ANNOTATION;
+                }
+                Token name = decl.get(k + 1);
+                symbols.add(new Symbol(kind, name.text(), owner, path, name.line(), signature(content, decl)));
+                return new Scope(ScopeKind.TYPE, owner.isEmpty() ? name.text() : owner + "." + name.text(), kind);
+            }
+        }
+        if (top != null) {
+            Symbol member = member(decl, top, path, content);
+            if (member != null && (member.kind() == Kind.METHOD || member.kind() == Kind.CONSTRUCTOR)) {
+                symbols.add(member);
+                return new Scope(ScopeKind.METHOD, member.qualifiedName(), null);
+            }
+            // Compact record constructor: "public Point {"
+            Token last = lastIdentifier(decl);
+            if (top.typeKind == Kind.RECORD && last != null && top.name.endsWith(last.text())) {
+                Symbol constructor = new Symbol(Kind.CONSTRUCTOR, last.text(), top.name, path, last.line(),
+                        signature(content, decl));
+                symbols.add(constructor);
+                return new Scope(ScopeKind.METHOD, constructor.qualifiedName(), null);
+            }
+        }
+        // Initializer block: calls in it count as calls of the type
+        return new Scope(ScopeKind.METHOD, owner.isEmpty() ? null : owner + ".<init>", null);
+    }
+
+    /**
+     * A method (name before the first '(') or a field (last identifier) from a member declaration
+     */
+    private static Symbol member(List<Token> decl, Scope top, String path, String content) {
+        for (int k = 1; k < decl.size(); k++) {
+            if (decl.get(k).text().equals("(")) {
+                Token name = decl.get(k - 1);
+                if (!name.identifier() || isKeyword(name.text())) {
+                    return null;
+                }
+                boolean constructor = k == 1 || top.name.equals(name.text()) || top.name.endsWith("." + name.text())
+                        || isModifierOnly(decl.subList(0, k - 1));
+                return new Symbol(constructor ? Kind.CONSTRUCTOR : Kind.METHOD, name.text(), top.name, path,
+                        name.line(), signature(content, decl));
+            }
+        }
+        Token name = lastIdentifier(decl);
+        if (name == null || decl.size() < 2) {
+            return null;
+        }
+        return new Symbol(Kind.FIELD, name.text(), top.name, path, name.line(), signature(content, decl));
+    }
+
+    private static boolean isModifierOnly(List<Token> tokens) {
+        for (Token token : tokens) {
+            if (!Set.of("public", "protected", "private").contains(token.text())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Token lastIdentifier(List<Token> decl) {
+        for (int k = decl.size() - 1; k >= 0; k--) {
+            Token token = decl.get(k);
+            if (token.identifier() && !isKeyword(token.text())) {
+                return token;
+            }
+        }
+        return null;
+    }
+
+    private static String signature(String content, List<Token> decl) {
+        if (decl.isEmpty()) {
+            return "";
+        }
+        String text = content.substring(decl.get(0).start(), decl.get(decl.size() - 1).end());
+        return text.replaceAll("\\s+", " ").strip();
+    }
+
+    private static String joined(List<Token> decl) {
+        StringBuilder out = new StringBuilder();
+        for (Token token : decl) {
+            if (out.length() > 0 && token.identifier() && !out.toString().endsWith(".")) {
+                out.append(' ');
+            }
+            out.append(token.text());
+        }
+        return out.toString();
+    }
+
+    private static String next(List<Token> tokens, int i) {
+        return i + 1 < tokens.size() ? tokens.get(i + 1).text() : "";
+    }
+
+    private static int skipAnnotation(List<Token> tokens, int at) {
+        int i = at + 1;
+        while (i + 2 < tokens.size() && tokens.get(i + 1).text().equals(".")) {
+            i += 2;
+        }
+        if (next(tokens, i).equals("(")) {
+            i = skipBalanced(tokens, i + 1, "(", ")");
+        }
+        return i;
+    }
+
+    /**
+     * Index of the token closing the bracket opened at {@code open}
+     */
+    private static int skipBalanced(List<Token> tokens, int open, String opening, String closing) {
+        int depth = 0;
+        for (int i = open; i < tokens.size(); i++) {
+            String text = tokens.get(i).text();
+            if (text.equals(opening)) {
+                depth++;
+            } else if (text.equals(closing) && --depth == 0) {
+                return i;
+            }
+        }
+        return tokens.size() - 1;
+    }
+
+    /**
+     * Identifiers and single-character symbols, without whitespace, comments and literals
+     */
+    static List<Token> tokenize(String src) {
+        List<Token> tokens = new ArrayList<>(src.length() / 4);
+        int line = 1;
+        int n = src.length();
+        int i = 0;
+        while (i < n) {
+            char c = src.charAt(i);
+            if (c == '\n') {
+                line++;
+                i++;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '/' && i + 1 < n && src.charAt(i + 1) == '/') {
+                while (i < n && src.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '/' && i + 1 < n && src.charAt(i + 1) == '*') {
+                int end = src.indexOf("*/", i + 2);
+                end = end < 0 ? n : end + 2;
+                line += count(src, i, end);
+                i = end;
+            } else if (c == '"' && src.startsWith("\"\"\"", i)) {
+                int end = src.indexOf("\"\"\"", i + 3);
+                while (end > 0 && src.charAt(end - 1) == '\\') {
+                    end = src.indexOf("\"\"\"", end + 1);
+                }
+                end = end < 0 ? n : end + 3;
+                line += count(src, i, end);
+                i = end;
+            } else if (c == '"' || c == '\'') {
+                int j = i + 1;
+                while (j < n && src.charAt(j) != c && src.charAt(j) != '\n') {
+                    j += src.charAt(j) == '\\' ? 2 : 1;
+                }
+                i = Math.min(n, j + 1);
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int j = i + 1;
+                while (j < n && Character.isJavaIdentifierPart(src.charAt(j))) {
+                    j++;
+                }
+                tokens.add(new Token(src.substring(i, j), line, i, j, true));
+                i = j;
+            } else if (Character.isDigit(c)) {
+                int j = i + 1;
+                while (j < n && (Character.isLetterOrDigit(src.charAt(j)) || src.charAt(j) == '_' || src.charAt(j) == '.')) {
+                    j++;
+                }
+                i = j;
+            } else {
+                tokens.add(new Token(String.valueOf(c), line, i, i + 1, false));
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static int count(String src, int from, int to) {
+        int lines = 0;
+        for (int k = from; k < to; k++) {
+            if (src.charAt(k) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+}
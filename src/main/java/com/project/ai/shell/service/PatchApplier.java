@@ -0,0 +1,176 @@
+package com.project.ai.shell.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies an edit to file content, so a small change does not need the whole file resent.
+ * <p>
+ * Two formats are accepted: a unified diff (hunks starting with {@code @@ -a,b +c,d @@}, headers optional)
+ * and one or more search/replace blocks:
+ * <pre>
+ * &lt;&lt;&lt;&lt;&lt;&lt;&lt; SEARCH
+ * old text
+ * =======
+ * new text
+ * &gt;&gt;&gt;&gt;&gt;&gt;&gt; REPLACE
+ * </pre>
+ * A search text must occur exactly once. A hunk spans as many lines as the counts in its header; it is applied at
+ * its stated line if the context matches there, otherwise at the nearest place where it does. A hunk without
+ * context or removed lines (a pure insertion) has nothing to match, so it is only applied at its stated line.
+ */
+public class PatchApplier {
+
+    private static final String SEARCH = "<<<<<<< SEARCH";
+    private static final String DIVIDER = "=======";
+    private static final String REPLACE = ">>>>>>> REPLACE";
+    private static final Pattern HUNK_HEADER = Pattern.compile("^@@ -(\\d+)(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@.*");
+
+    public record Result(String content, int edits) {
+    }
+
+    public Result apply(String original, String patch) {
+        if (patch.contains(SEARCH)) {
+            return applySearchReplace(original, patch);
+        }
+        if (patch.lines().anyMatch(line -> line.startsWith("@@"))) {
+            return applyUnifiedDiff(original, patch);
+        }
+        throw new IllegalArgumentException("Patch is neither a unified diff nor SEARCH/REPLACE blocks");
+    }
+
+    private Result applySearchReplace(String original, String patch) {
+        String content = original;
+        int edits = 0;
+        List<String> lines = patch.lines().toList();
+        for (int i = 0; i < lines.size(); i++) {
+            if (!lines.get(i).strip().equals(SEARCH)) {
+                continue;
+            }
+            int divider = indexOf(lines, DIVIDER, i + 1);
+            int end = indexOf(lines, REPLACE, divider + 1);
+            String search = String.join("\n", lines.subList(i + 1, divider));
+            String replace = String.join("\n", lines.subList(divider + 1, end));
+
+            int at = content.indexOf(search);
+            if (at < 0) {
+                throw new IllegalArgumentException("Search text not found:\n" + search);
+            }
+            if (content.indexOf(search, at + 1) >= 0) {
+                throw new IllegalArgumentException("Search text is not unique, add more context:\n" + search);
+            }
+            content = content.substring(0, at) + replace + content.substring(at + search.length());
+            edits++;
+            i = end;
+        }
+        return new Result(content, edits);
+    }
+
+    private static int indexOf(List<String> lines, String marker, int from) {
+        for (int i = from; i < lines.size(); i++) {
+            if (lines.get(i).strip().equals(marker)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unterminated SEARCH/REPLACE block, expected " + marker);
+    }
+
+    private Result applyUnifiedDiff(String original, String patch) {
+        boolean trailingNewline = original.endsWith("\n");
+        List<String> lines = new ArrayList<>(Arrays.asList(
+                (trailingNewline ? original.substring(0, original.length() - 1) : original).split("\n", -1)));
+        if (original.isEmpty()) {
+            lines.clear();
+        }
+
+        List<String> diff = patch.lines().toList();
+        int offset = 0;
+        int edits = 0;
+        for (int i = 0; i < diff.size(); i++) {
+            Matcher header = HUNK_HEADER.matcher(diff.get(i));
+            if (!header.matches()) {
+                continue;
+            }
+            int beforeCount = header.group(2) == null ? 1 : Integer.parseInt(header.group(2));
+            int afterCount = header.group(4) == null ? 1 : Integer.parseInt(header.group(4));
+            List<String> before = new ArrayList<>();
+            List<String> after = new ArrayList<>();
+            // The header counts bound the hunk, so body lines such as "--- x" (a removed "-- x") are not mistaken
+            // for the next file header
+            int j = i + 1;
+            for (; j < diff.size() && (before.size() < beforeCount || after.size() < afterCount); j++) {
+                String line = diff.get(j);
+                if (line.startsWith("\\")) {
+                    continue; // "\ No newline at end of file"
+                }
+                char kind = line.isEmpty() ? ' ' : line.charAt(0);
+                String text = line.isEmpty() ? "" : line.substring(1);
+                if (kind != ' ' && kind != '-' && kind != '+') {
+                    break;
+                }
+                if (kind == ' ' || kind == '-') {
+                    before.add(text);
+                }
+                if (kind == ' ' || kind == '+') {
+                    after.add(text);
+                }
+            }
+            if (before.size() != beforeCount || after.size() != afterCount) {
+                throw new IllegalArgumentException("Hunk has " + before.size() + " old and " + after.size()
+                        + " new lines but its header says " + beforeCount + " and " + afterCount + ": " + diff.get(i));
+            }
+
+            int at;
+            if (before.isEmpty()) {
+                // Pure insertion: "-a,0" means after line a; with nothing to match it is never moved
+                at = Integer.parseInt(header.group(1)) + offset;
+                if (at < 0 || at > lines.size()) {
+                    throw new IllegalArgumentException("Insertion after line " + header.group(1) + " is past the end of the file ("
+                            + lines.size() + " lines), add context lines: " + diff.get(i));
+                }
+            } else {
+                at = locate(lines, before, Math.max(0, Integer.parseInt(header.group(1)) - 1 + offset));
+            }
+            if (at < 0) {
+                throw new IllegalArgumentException("Hunk does not match the file: " + diff.get(i));
+            }
+            List<String> target = lines.subList(at, at + before.size());
+            target.clear();
+            target.addAll(after);
+            offset += after.size() - before.size();
+            edits++;
+            i = j - 1;
+        }
+
+        String content = String.join("\n", lines);
+        return new Result(trailingNewline && !lines.isEmpty() ? content + "\n" : content, edits);
+    }
+
+    /**
+     * Position of the block closest to the expected line, or -1
+     */
+    private static int locate(List<String> lines, List<String> block, int expected) {
+        int last = lines.size() - block.size();
+        for (int distance = 0; distance <= Math.max(expected, last - expected); distance++) {
+            if (expected - distance >= 0 && expected - distance <= last && matches(lines, block, expected - distance)) {
+                return expected - distance;
+            }
+            if (distance > 0 && expected + distance <= last && matches(lines, block, expected + distance)) {
+                return expected + distance;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(List<String> lines, List<String> block, int at) {
+        for (int k = 0; k < block.size(); k++) {
+            if (!lines.get(at + k).stripTrailing().equals(block.get(k).stripTrailing())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
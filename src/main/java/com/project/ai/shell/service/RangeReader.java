@@ -0,0 +1,159 @@
+package com.project.ai.shell.service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads line or byte ranges of a file through a memory-mapped {@link FileChannel}.
+ * <p>
+ * The first line-range read of a file scans it once for line breaks and keeps the offsets (validated against
+ * last-modified time and size). After that, reading lines 10,000 to 10,200 maps and decodes only those bytes.
+ */
+public class RangeReader {
+
+    private static final long SCAN_WINDOW = 64L * 1024 * 1024;
+
+    private record LineOffsets(long lastModified, long size, long[] starts, int lines) {
+    }
+
+    private final Map<Path, LineOffsets> offsets;
+
+    public RangeReader(int maxCachedFiles) {
+        this.offsets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, LineOffsets> eldest) {
+                return size() > maxCachedFiles;
+            }
+        };
+    }
+
+    /**
+     * Lines {@code startLine} to {@code endLine} (1-based, inclusive), clamped to the end of the file
+     */
+    public String readLines(Path file, int startLine, int endLine) throws IOException {
+        if (startLine < 1 || endLine < startLine) {
+            throw new IOException("Invalid line range: " + startLine + "-" + endLine);
+        }
+        LineOffsets index = lineOffsets(file);
+        if (startLine > index.lines()) {
+            throw new IOException("Line " + startLine + " is past the end of the file (" + index.lines() + " lines)");
+        }
+
+        long from = index.starts()[startLine - 1];
+        long to = endLine >= index.lines() ? index.size() : index.starts()[endLine];
+        return decode(file, from, to - from);
+    }
+
+    /**
+     * The last line up to {@code endLine} (clamped to the end of the file) such that lines {@code startLine} to it
+     * take at most {@code maxBytes}, or {@code startLine - 1} when line {@code startLine} alone is longer. An
+     * invalid range is returned unchanged, for {@link #readLines} to reject.
+     */
+    public int lastLineWithin(Path file, int startLine, int endLine, long maxBytes) throws IOException {
+        LineOffsets index = lineOffsets(file);
+        if (startLine < 1 || endLine < startLine || startLine > index.lines()) {
+            return endLine;
+        }
+        long from = index.starts()[startLine - 1];
+        int low = startLine - 1;
+        int high = Math.min(endLine, index.lines());
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            long to = mid >= index.lines() ? index.size() : index.starts()[mid];
+            if (to - from <= maxBytes) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * {@code length} bytes starting at {@code offset}, clamped to the end of the file. A multi-byte character
+     * cut by the range boundary comes out as a replacement character.
+     */
+    public String readBytes(Path file, long offset, int length) throws IOException {
+        long size = Files.size(file);
+        if (offset < 0 || length < 0 || offset > size) {
+            throw new IOException("Invalid byte range: " + offset + "+" + length + " (file is " + size + " bytes)");
+        }
+        return decode(file, offset, Math.min(length, size - offset));
+    }
+
+    public int lineCount(Path file) throws IOException {
+        return lineOffsets(file).lines();
+    }
+
+    private LineOffsets lineOffsets(Path file) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        long lastModified = attrs.lastModifiedTime().toMillis();
+
+        synchronized (offsets) {
+            LineOffsets cached = offsets.get(file);
+            if (cached != null && cached.lastModified() == lastModified && cached.size() == attrs.size()) {
+                return cached;
+            }
+        }
+
+        LineOffsets scanned = scan(file, lastModified, attrs.size());
+        synchronized (offsets) {
+            offsets.put(file, scanned);
+        }
+        return scanned;
+    }
+
+    private static LineOffsets scan(Path file, long lastModified, long size) throws IOException {
+        long[] starts = new long[1024];
+        int lines = 0;
+        if (size > 0) {
+            starts[lines++] = 0;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (long window = 0; window < size; window += SCAN_WINDOW) {
+                long length = Math.min(SCAN_WINDOW, size - window);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, window, length);
+                for (int i = 0; i < length; i++) {
+                    if (buffer.get(i) == '\n') {
+                        long next = window + i + 1;
+                        if (next < size) {
+                            if (lines == starts.length) {
+                                starts = Arrays.copyOf(starts, lines * 2);
+                            }
+                            starts[lines++] = next;
+                        }
+                    }
+                }
+            }
+        }
+        return new LineOffsets(lastModified, size, Arrays.copyOf(starts, lines), lines);
+    }
+
+    private static String decode(Path file, long offset, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Range too large to read at once: " + length + " bytes");
+        }
+        if (length == 0) {
+            return "";
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            return StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(buffer)
+                    .toString();
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.project.ai.shell.service;
+
+import com.project.ai.shell.records.FileInfo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Structural index over the project's Java files: declarations by name, which files mention a name, and which
+ * methods call a name.
+ * <p>
+ * Brought up to date from last-modified times like {@link TrigramIndex}, so only changed files are parsed
+ * again (in parallel). References are kept per file only; the lines are found by re-reading the few candidate
+ * files, which keeps the index small.
+ */
+@Slf4j
+public class SymbolIndex {
+
+    private record Entry(long lastModified, JavaSymbols.FileSymbols symbols) {
+    }
+
+    private final long maxFileBytes;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Entry> files = new HashMap<>();
+    private final Map<String, List<JavaSymbols.Symbol>> definitions = new HashMap<>();
+    private final Map<String, Set<String>> mentions = new HashMap<>();
+    private final Map<String, Set<JavaSymbols.Symbol>> callers = new HashMap<>();
+
+    public SymbolIndex(long maxFileBytes) {
+        this.maxFileBytes = maxFileBytes;
+    }
+
+    /**
+     * Re-parse Java files whose last-modified time changed and drop files that are gone
+     */
+    public void update(List<FileInfo> all, TrigramIndex.Resolver resolver) {
+        long start = System.nanoTime();
+        List<FileInfo> javaFiles = all.stream().filter(file -> file.relativePath().endsWith(".java")).toList();
+        List<FileInfo> changed;
+        lock.readLock().lock();
+        try {
+            changed = javaFiles.stream()
+                    .filter(file -> {
+                        Entry existing = files.get(file.relativePath());
+                        return existing == null || existing.lastModified() != file.lastModifiedTime();
+                    })
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<String, Entry> parsed = changed.parallelStream()
+                .map(file -> parse(file, resolver))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+
+        Set<String> present = javaFiles.stream().map(FileInfo::relativePath).collect(Collectors.toSet());
+        lock.writeLock().lock();
+        try {
+            for (String path : new ArrayList<>(files.keySet())) {
+                if (!present.contains(path) || parsed.containsKey(path)) {
+                    remove(path);
+                }
+            }
+            parsed.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!changed.isEmpty()) {
+            log.debug("Symbol index: {} files parsed in {} ms", changed.size(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private Map.Entry<String, Entry> parse(FileInfo file, TrigramIndex.Resolver resolver) {
+        try {
+            Path path = resolver.resolve(file.relativePath());
+            if (Files.size(path) > maxFileBytes) {
+                return null;
+            }
+            String content = Files.readString(path);
+            return Map.entry(file.relativePath(),
+                    new Entry(file.lastModifiedTime(), JavaSymbols.parse(file.relativePath(), content)));
+        } catch (IOException | RuntimeException e) {
+            log.debug("Not indexing {}: {}", file.relativePath(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void add(String path, Entry entry) {
+        files.put(path, entry);
+        JavaSymbols.FileSymbols symbols = entry.symbols();
+        Map<String, JavaSymbols.Symbol> methods = new HashMap<>();
+        for (JavaSymbols.Symbol symbol : symbols.symbols()) {
+            definitions.computeIfAbsent(symbol.name(), k -> new ArrayList<>()).add(symbol);
+            methods.putIfAbsent(symbol.qualifiedName(), symbol);
+        }
+        for (String identifier : symbols.identifiers()) {
+            mentions.computeIfAbsent(identifier, k -> new HashSet<>()).add(path);
+        }
+        symbols.calls().forEach((caller, callees) -> {
+            JavaSymbols.Symbol method = methods.get(caller);
+            if (method == null) {
+                return;
+            }
+            for (String callee : callees) {
+                callers.computeIfAbsent(callee, k -> new HashSet<>()).add(method);
+            }
+        });
+    }
+
+    private void remove(String path) {
+        Entry entry = files.remove(path);
+        if (entry == null) {
+            return;
+        }
+        JavaSymbols.FileSymbols symbols = entry.symbols();
+        for (JavaSymbols.Symbol symbol : symbols.symbols()) {
+            removeFrom(definitions, symbol.name(), list -> list.removeIf(s -> s.path().equals(path)));
+        }
+        for (String identifier : symbols.identifiers()) {
+            removeFrom(mentions, identifier, set -> set.remove(path));
+        }
+        for (Set<String> callees : symbols.calls().values()) {
+            for (String callee : callees) {
+                removeFrom(callers, callee, set -> set.removeIf(s -> s.path().equals(path)));
+            }
+        }
+    }
+
+    private static <C extends Collection<?>> void removeFrom(Map<String, C> map, String key, Consumer<C> removal) {
+        C values = map.get(key);
+        if (values != null) {
+            removal.accept(values);
+            if (values.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Declarations named {@code name}; "Type.member" narrows to members of types with that simple name
+     */
+    public List<String> findDefinition(String name, int maxResults) {
+        int dot = name.lastIndexOf('.');
+        String simple = dot < 0 ? name : name.substring(dot + 1);
+        String owner = dot < 0 ? null : name.substring(0, dot);
+        lock.readLock().lock();
+        try {
+            return definitions.getOrDefault(simple, List.of()).stream()
+                    .filter(symbol -> owner == null || symbol.owner().equals(owner) || symbol.owner().endsWith("." + owner))
+                    .sorted(Comparator.comparing(JavaSymbols.Symbol::path).thenComparing(JavaSymbols.Symbol::line))
+                    .limit(maxResults)
+                    .map(symbol -> String.format("%s %s  %s:%d  %s", symbol.kind().name().toLowerCase(),
+                            symbol.qualifiedName(), symbol.path(), symbol.line(), symbol.signature()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lines where the identifier appears in code (not in comments or strings), as "path:line: text"
+     */
+    public List<String> findReferences(String name, int maxResults, TrigramIndex.Resolver resolver) {
+        int dot = name.lastIndexOf('.');
+        String simple = dot < 0 ? name : name.substring(dot + 1);
+        Set<String> candidates;
+        lock.readLock().lock();
+        try {
+            candidates = new TreeSet<>(mentions.getOrDefault(simple, Set.of()));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<String> results = new ArrayList<>();
+        for (String path : candidates) {
+            String content;
+            try {
+                content = Files.readString(resolver.resolve(path));
+            } catch (IOException e) {
+                continue;
+            }
+            String[] lines = content.split("\n", -1);
+            int lastLine = -1;
+            for (JavaSymbols.Token token : JavaSymbols.tokenize(content)) {
+                if (!token.identifier() || !token.text().equals(simple) || token.line() == lastLine) {
+                    continue;
+                }
+                lastLine = token.line();
+                results.add(path + ":" + token.line() + ": " + lines[token.line() - 1].strip());
+                if (results.size() >= maxResults) {
+                    return results;
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Package, imports and declarations of one file, one per line with line numbers, nested by owner
+     */
+    public String outline(String path) {
+        lock.readLock().lock();
+        try {
+            Entry entry = files.get(path);
+            if (entry == null) {
+                return null;
+            }
+            JavaSymbols.FileSymbols symbols = entry.symbols();
+            StringBuilder out = new StringBuilder();
+            if (!symbols.packageName().isEmpty()) {
+                out.append("package ").append(symbols.packageName()).append('\n');
+            }
+            if (!symbols.imports().isEmpty()) {
+                out.append("imports: ").append(String.join(", ", symbols.imports())).append('\n');
+            }
+            for (JavaSymbols.Symbol symbol : symbols.symbols()) {
+                int depth = symbol.owner().isEmpty() ? 0 : symbol.owner().split("\\.").length;
+                out.append("  ".repeat(depth)).append(symbol.line()).append(": ").append(symbol.signature()).append('\n');
+            }
+            return out.toString();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * One line per type with its method names, e.g. "class FileService: readFile, writeFile"; null when the
+     * file is not indexed
+     */
+    public String summary(String path) {
+        lock.readLock().lock();
+        try {
+            Entry entry = files.get(path);
+            if (entry == null) {
+                return null;
+            }
+            Map<String, Set<String>> members = new LinkedHashMap<>();
+            Map<String, String> kinds = new HashMap<>();
+            for (JavaSymbols.Symbol symbol : entry.symbols().symbols()) {
+                if (symbol.isType()) {
+                    members.putIfAbsent(symbol.qualifiedName(), new LinkedHashSet<>());
+                    kinds.put(symbol.qualifiedName(), symbol.kind().name().toLowerCase());
+                } else if (symbol.kind() == JavaSymbols.Kind.METHOD) {
+                    members.computeIfAbsent(symbol.owner(), k -> new LinkedHashSet<>()).add(symbol.name());
+                }
+            }
+            return members.entrySet().stream()
+                    .map(type -> kinds.getOrDefault(type.getKey(), "type") + " " + type.getKey()
+                            + (type.getValue().isEmpty() ? "" : ": " + String.join(", ", type.getValue())))
+                    .collect(Collectors.joining("; "));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Files declaring a type or member with this simple name
+     */
+    public Set<String> pathsDefining(String name) {
+        lock.readLock().lock();
+        try {
+            return definitions.getOrDefault(name, List.of()).stream()
+                    .map(JavaSymbols.Symbol::path)
+                    .collect(Collectors.toSet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Methods that call something named {@code name}
+     */
+    public List<String> callers(String name, int maxResults) {
+        int dot = name.lastIndexOf('.');
+        String simple = dot < 0 ? name : name.substring(dot + 1);
+        lock.readLock().lock();
+        try {
+            return callers.getOrDefault(simple, Set.of()).stream()
+                    .sorted(Comparator.comparing(JavaSymbols.Symbol::path).thenComparing(JavaSymbols.Symbol::line))
+                    .limit(maxResults)
+                    .map(symbol -> symbol.qualifiedName() + "  " + symbol.path() + ":" + symbol.line())
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Names called from methods named {@code name} ("Type.method" to pick one type)
+     */
+    public List<String> callees(String name) {
+        int dot = name.lastIndexOf('.');
+        String simple = dot < 0 ? name : name.substring(dot + 1);
+        String owner = dot < 0 ? null : name.substring(0, dot);
+        lock.readLock().lock();
+        try {
+            List<String> results = new ArrayList<>();
+            for (JavaSymbols.Symbol method : definitions.getOrDefault(simple, List.of())) {
+                if (method.isType() || (owner != null && !method.owner().equals(owner) && !method.owner().endsWith("." + owner))) {
+                    continue;
+                }
+                Set<String> called = files.get(method.path()).symbols().calls().get(method.qualifiedName());
+                if (called != null) {
+                    results.add(method.qualifiedName() + " (" + method.path() + ":" + method.line() + ") calls: "
+                            + String.join(", ", called));
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return files.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
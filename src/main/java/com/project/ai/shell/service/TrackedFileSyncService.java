@@ -0,0 +1,188 @@
+package com.project.ai.shell.service;
+
+import com.project.ai.shell.model.TrackedFile;
+import com.project.ai.shell.records.FileChanges;
+import com.project.ai.shell.records.FileInfo;
+import com.project.ai.shell.repo.TrackedFileRepo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the tracked_files table in line with the file index and publishes what changed.
+ * <p>
+ * The table is read once; after that the known state lives in memory and each sync only writes the rows
+ * that differ, in JDBC batches (see hibernate.jdbc.batch_size). Listeners receive a {@link FileChanges}
+ * event to re-index just those files.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TrackedFileSyncService {
+
+    private static final int BATCH_SIZE = 500;
+
+    private record Tracked(long id, long lastModified) {
+    }
+
+    private final FileService fileService;
+    private final TrackedFileRepo trackedFileRepo;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Map<String, Tracked> tracked;
+    private long syncedIndexVersion = -1;
+
+    @Scheduled(fixedDelayString = "${shell.sync.interval:PT1M}")
+    public void scheduledSync() {
+        try {
+            sync();
+        } catch (IOException | RuntimeException e) {
+            log.warn("File sync failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reconcile the table with the current file index and return the changes
+     */
+    public synchronized FileChanges sync() throws IOException {
+        long version = fileService.indexVersion();
+        if (tracked != null && version == syncedIndexVersion) {
+            return new FileChanges(List.of(), List.of(), List.of());
+        }
+
+        long start = System.nanoTime();
+        List<FileInfo> files = fileService.listAllFilesWithTime();
+        FileChanges changes;
+        try {
+            changes = transactionTemplate.execute(status -> apply(files));
+        } catch (RuntimeException e) {
+            // The in-memory view may no longer match the table, read it again next time
+            tracked = null;
+            throw e;
+        }
+        syncedIndexVersion = version;
+
+        if (!changes.isEmpty()) {
+            log.info("Synced tracked files: {} added, {} modified, {} deleted in {} ms",
+                    changes.added().size(), changes.modified().size(), changes.deleted().size(),
+                    (System.nanoTime() - start) / 1_000_000);
+            eventPublisher.publishEvent(changes);
+        }
+        return changes;
+    }
+
+    private FileChanges apply(List<FileInfo> files) {
+        if (tracked == null) {
+            tracked = loadTracked();
+        }
+
+        List<String> added = new ArrayList<>();
+        List<String> modified = new ArrayList<>();
+        List<TrackedFile> inserts = new ArrayList<>();
+        Map<Long, FileInfo> updates = new HashMap<>();
+        Set<String> seen = new HashSet<>(files.size() * 2);
+
+        for (FileInfo file : files) {
+            seen.add(file.relativePath());
+            Tracked known = tracked.get(file.relativePath());
+            if (known == null) {
+                added.add(file.relativePath());
+                inserts.add(TrackedFile.builder()
+                        .filePath(file.relativePath())
+                        .lastModifiedTime(toDateTime(file.lastModifiedTime()))
+                        .build());
+            } else if (known.lastModified() != file.lastModifiedTime()) {
+                modified.add(file.relativePath());
+                updates.put(known.id(), file);
+            }
+        }
+
+        List<String> deleted = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        tracked.forEach((path, known) -> {
+            if (!seen.contains(path)) {
+                deleted.add(path);
+                deletedIds.add(known.id());
+            }
+        });
+
+        insert(inserts);
+        update(updates);
+        delete(deleted, deletedIds);
+        return new FileChanges(added, modified, deleted);
+    }
+
+    private Map<String, Tracked> loadTracked() {
+        Map<String, Tracked> known = new HashMap<>();
+        for (TrackedFile file : trackedFileRepo.findAll()) {
+            known.put(file.getFilePath(), new Tracked(file.getId(), toMillis(file.getLastModifiedTime())));
+        }
+        entityManager.clear();
+        return known;
+    }
+
+    private void insert(List<TrackedFile> inserts) {
+        for (int i = 0; i < inserts.size(); i++) {
+            TrackedFile file = inserts.get(i);
+            entityManager.persist(file);
+            tracked.put(file.getFilePath(), new Tracked(file.getId(), toMillis(file.getLastModifiedTime())));
+            if ((i + 1) % BATCH_SIZE == 0) {
+                flushBatch();
+            }
+        }
+        flushBatch();
+    }
+
+    private void update(Map<Long, FileInfo> updates) {
+        List<Long> ids = new ArrayList<>(updates.keySet());
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            // Managed entities, so the changes go out as batched UPDATEs on flush
+            for (TrackedFile file : trackedFileRepo.findAllById(ids.subList(from, Math.min(from + BATCH_SIZE, ids.size())))) {
+                FileInfo info = updates.get(file.getId());
+                file.setLastModifiedTime(toDateTime(info.lastModifiedTime()));
+                tracked.put(file.getFilePath(), new Tracked(file.getId(), info.lastModifiedTime()));
+            }
+            flushBatch();
+        }
+    }
+
+    private void delete(List<String> paths, List<Long> ids) {
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            trackedFileRepo.deleteAllByIdInBatch(ids.subList(from, Math.min(from + BATCH_SIZE, ids.size())));
+        }
+        paths.forEach(tracked::remove);
+    }
+
+    private void flushBatch() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,534 @@
+package com.project.ai.shell.service;
+
+import com.project.ai.shell.records.FileInfo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Trigram index over file contents, persisted to disk between runs.
+ * <p>
+ * Every indexed file gets an id; each (lower-cased) trigram maps to the sorted list of ids containing it. A
+ * search intersects the lists for the trigrams of the query and only then reads the few candidate files to
+ * find the actual matching lines. The index is brought up to date from last-modified times, so only changed
+ * files are re-read.
+ * <p>
+ * Ids are only ever appended, so posting lists stay sorted without inserts. A changed or deleted file leaves
+ * its old id behind as dead, filtered out of results, until enough are dead to compact: then live ids are
+ * renumbered and every list rewritten in one pass. That way no file has to remember its trigrams. The file on
+ * disk holds delta/varint-encoded lists and is written at most every {@link #SAVE_DELAY} and on close.
+ */
+@Slf4j
+public class TrigramIndex implements Closeable {
+
+    private static final int MAGIC = 0x54524932; // "TRI2"
+    private static final int BINARY_PROBE_BYTES = 8000;
+    private static final int MAX_LINE_LENGTH = 200;
+    private static final int MIN_DEAD_TO_COMPACT = 1024;
+    private static final int UPDATE_CHUNK = 256;
+    private static final Duration SAVE_DELAY = Duration.ofSeconds(30);
+
+    private static final ScheduledExecutorService SAVER = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "trigram-save");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Turns an index path back into a file on disk
+     */
+    public interface Resolver {
+        Path resolve(String relativePath) throws IOException;
+    }
+
+    private record Entry(int id, long lastModified) {
+    }
+
+    /**
+     * Ids in ascending order
+     */
+    private static final class Posting {
+        private int[] ids = new int[2];
+        private int size;
+
+        void append(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            ids[size++] = id;
+        }
+
+        /**
+         * Drop dead ids and renumber the rest; false when nothing is left
+         */
+        boolean compact(int[] renumber) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int id = renumber[ids[i]];
+                if (id >= 0) {
+                    ids[kept++] = id;
+                }
+            }
+            size = kept;
+            ids = Arrays.copyOf(ids, Math.max(kept, 1));
+            return kept > 0;
+        }
+    }
+
+    private final Path storeFile;
+    private final long maxFileBytes;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final List<String> pathsById = new ArrayList<>();
+    private final BitSet dead = new BitSet();
+    private final Map<Long, Posting> postings = new HashMap<>();
+    private boolean dirty;
+
+    public TrigramIndex(Path storeFile, long maxFileBytes) {
+        this.storeFile = storeFile;
+        this.maxFileBytes = maxFileBytes;
+        load();
+    }
+
+    /**
+     * Re-index files whose last-modified time changed and drop files that are gone.
+     * <p>
+     * Files are read outside the lock, a chunk at a time, so searches keep running on the previous state and
+     * only wait while a chunk is swapped in.
+     */
+    public void update(List<FileInfo> files, Resolver resolver) {
+        List<FileInfo> changed;
+        List<String> gone;
+        lock.readLock().lock();
+        try {
+            changed = files.stream()
+                    .filter(file -> {
+                        Entry existing = entries.get(file.relativePath());
+                        return existing == null || existing.lastModified() != file.lastModifiedTime();
+                    })
+                    .toList();
+            Set<String> present = new HashSet<>(files.size() * 2);
+            files.forEach(file -> present.add(file.relativePath()));
+            gone = entries.keySet().stream().filter(path -> !present.contains(path)).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (changed.isEmpty() && gone.isEmpty()) {
+            return;
+        }
+
+        for (int from = 0; from < changed.size(); from += UPDATE_CHUNK) {
+            List<FileInfo> chunk = changed.subList(from, Math.min(changed.size(), from + UPDATE_CHUNK));
+            Map<String, long[]> extracted = chunk.parallelStream()
+                    .collect(Collectors.toMap(FileInfo::relativePath, file -> trigramsOf(file.relativePath(), resolver)));
+            lock.writeLock().lock();
+            try {
+                for (FileInfo file : chunk) {
+                    remove(file.relativePath());
+                    add(file.relativePath(), file.lastModifiedTime(), extracted.get(file.relativePath()));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            gone.forEach(this::remove);
+            compactIfNeeded();
+            scheduleSave();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find lines containing {@code query}, formatted as "path:line: text"
+     */
+    public List<String> search(String query, boolean ignoreCase, int maxResults, Resolver resolver) {
+        List<String> candidates = candidates(query);
+        String needle = ignoreCase ? query.toLowerCase(Locale.ROOT) : query;
+
+        List<String> results = new ArrayList<>();
+        for (String path : candidates) {
+            String content;
+            try {
+                content = readText(resolver.resolve(path));
+            } catch (IOException e) {
+                continue;
+            }
+            if (content == null) {
+                continue;
+            }
+
+            try (BufferedReader reader = new BufferedReader(new StringReader(content))) {
+                String line;
+                int number = 0;
+                while ((line = reader.readLine()) != null) {
+                    number++;
+                    String haystack = ignoreCase ? line.toLowerCase(Locale.ROOT) : line;
+                    if (haystack.contains(needle)) {
+                        results.add(path + ":" + number + ": " + abbreviate(line.strip()));
+                        if (results.size() >= maxResults) {
+                            return results;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // StringReader does not throw
+            }
+        }
+        return results;
+    }
+
+    private List<String> candidates(String query) {
+        lock.readLock().lock();
+        try {
+            List<String> paths = new ArrayList<>();
+            if (query.length() < 3) {
+                paths.addAll(entries.keySet());
+            } else {
+                List<Posting> lists = new ArrayList<>();
+                for (long trigram : extract(query.toLowerCase(Locale.ROOT))) {
+                    Posting posting = postings.get(trigram);
+                    if (posting == null) {
+                        return List.of();
+                    }
+                    lists.add(posting);
+                }
+                // Shortest list first, so the running intersection is small from the start
+                lists.sort(Comparator.comparingInt(posting -> posting.size));
+                int[] ids = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+                int size = ids.length;
+                for (int i = 1; i < lists.size() && size > 0; i++) {
+                    size = intersect(ids, size, lists.get(i));
+                }
+                for (int i = 0; i < size; i++) {
+                    if (!dead.get(ids[i])) {
+                        paths.add(pathsById.get(ids[i]));
+                    }
+                }
+            }
+            paths.sort(null);
+            return paths;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Keep the ids in {@code ids[0..size)} that are also in the posting; both are sorted. Returns the new size
+     */
+    private static int intersect(int[] ids, int size, Posting posting) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < size && j < posting.size; i++) {
+            while (j < posting.size && posting.ids[j] < ids[i]) {
+                j++;
+            }
+            if (j < posting.size && posting.ids[j] == ids[i]) {
+                ids[kept++] = ids[i];
+            }
+        }
+        return kept;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] trigramsOf(String relativePath, Resolver resolver) {
+        try {
+            Path file = resolver.resolve(relativePath);
+            if (Files.size(file) > maxFileBytes) {
+                return new long[0];
+            }
+            String content = readText(file);
+            return content == null ? new long[0] : extract(content.toLowerCase(Locale.ROOT));
+        } catch (IOException e) {
+            log.debug("Could not index {}: {}", relativePath, e.getMessage());
+            return new long[0];
+        }
+    }
+
+    /**
+     * File content as text, or null for binary files
+     */
+    private static String readText(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        int probe = Math.min(bytes.length, BINARY_PROBE_BYTES);
+        for (int i = 0; i < probe; i++) {
+            if (bytes[i] == 0) {
+                return null;
+            }
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sorted, distinct trigrams of the text; three chars packed into one long
+     */
+    static long[] extract(String text) {
+        if (text.length() < 3) {
+            return new long[0];
+        }
+        long[] trigrams = new long[text.length() - 2];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        Arrays.sort(trigrams);
+
+        int distinct = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            if (i == 0 || trigrams[i] != trigrams[i - 1]) {
+                trigrams[distinct++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, distinct);
+    }
+
+    private void add(String path, long lastModified, long[] trigrams) {
+        int id = pathsById.size();
+        pathsById.add(path);
+        entries.put(path, new Entry(id, lastModified));
+        for (long trigram : trigrams) {
+            postings.computeIfAbsent(trigram, t -> new Posting()).append(id);
+        }
+    }
+
+    private void remove(String path) {
+        Entry entry = entries.remove(path);
+        if (entry != null) {
+            dead.set(entry.id());
+            pathsById.set(entry.id(), null);
+        }
+    }
+
+    /**
+     * Renumber live ids densely and drop dead ones from every list once they are as many as the live ones
+     */
+    private void compactIfNeeded() {
+        int deadCount = dead.cardinality();
+        if (deadCount < MIN_DEAD_TO_COMPACT || deadCount < entries.size()) {
+            return;
+        }
+        long start = System.nanoTime();
+        int[] renumber = new int[pathsById.size()];
+        List<String> live = new ArrayList<>(entries.size());
+        for (int id = 0; id < renumber.length; id++) {
+            if (dead.get(id)) {
+                renumber[id] = -1;
+            } else {
+                renumber[id] = live.size();
+                live.add(pathsById.get(id));
+            }
+        }
+        postings.values().removeIf(posting -> !posting.compact(renumber));
+        entries.replaceAll((path, entry) -> new Entry(renumber[entry.id()], entry.lastModified()));
+        pathsById.clear();
+        pathsById.addAll(live);
+        dead.clear();
+        log.debug("Compacted trigram index: {} dead ids dropped in {} ms", deadCount, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(storeFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(storeFile)))) {
+            if (in.readInt() != MAGIC) {
+                log.warn("Ignoring trigram index with unknown format: {}", storeFile);
+                return;
+            }
+            int count = in.readInt();
+            for (int id = 0; id < count; id++) {
+                String path = in.readUTF();
+                pathsById.add(path);
+                entries.put(path, new Entry(id, in.readLong()));
+            }
+            int trigrams = in.readInt();
+            for (int t = 0; t < trigrams; t++) {
+                long trigram = in.readLong();
+                int size = readVarint(in);
+                Posting posting = new Posting();
+                posting.ids = new int[Math.max(size, 1)];
+                int id = 0;
+                for (int i = 0; i < size; i++) {
+                    id += readVarint(in);
+                    posting.ids[i] = id;
+                }
+                posting.size = size;
+                postings.put(trigram, posting);
+            }
+            log.info("Loaded trigram index with {} files from {}", count, storeFile);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not load trigram index {}, rebuilding: {}", storeFile, e.getMessage());
+            entries.clear();
+            pathsById.clear();
+            postings.clear();
+        }
+    }
+
+    private void scheduleSave() {
+        dirty = true;
+        if (saveScheduled.compareAndSet(false, true)) {
+            SAVER.schedule(() -> {
+                saveScheduled.set(false);
+                save();
+            }, SAVE_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Write the index if it changed since the last save
+     */
+    public synchronized void save() {
+        // Read lock: searches go on while the file is written, updates wait
+        lock.readLock().lock();
+        try {
+            if (!dirty) {
+                return;
+            }
+            write();
+            dirty = false;
+        } catch (IOException e) {
+            log.warn("Could not save trigram index {}: {}", storeFile, e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        save();
+    }
+
+    /**
+     * Live files in id order, then each list with ids renumbered to that order
+     */
+    private void write() throws IOException {
+        int[] renumber = new int[pathsById.size()];
+        int live = 0;
+        for (int id = 0; id < renumber.length; id++) {
+            renumber[id] = dead.get(id) ? -1 : live++;
+        }
+
+        Files.createDirectories(storeFile.getParent());
+        Path temp = storeFile.resolveSibling(storeFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(live);
+            for (int id = 0; id < renumber.length; id++) {
+                if (renumber[id] >= 0) {
+                    String path = pathsById.get(id);
+                    out.writeUTF(path);
+                    out.writeLong(entries.get(path).lastModified());
+                }
+            }
+
+            int[] ids = new int[0];
+            List<Map.Entry<Long, Posting>> lists = new ArrayList<>(postings.entrySet());
+            int nonEmpty = 0;
+            for (Map.Entry<Long, Posting> list : lists) {
+                if (liveCount(list.getValue(), renumber) > 0) {
+                    nonEmpty++;
+                }
+            }
+            out.writeInt(nonEmpty);
+            for (Map.Entry<Long, Posting> list : lists) {
+                Posting posting = list.getValue();
+                if (ids.length < posting.size) {
+                    ids = new int[posting.size];
+                }
+                int size = 0;
+                for (int i = 0; i < posting.size; i++) {
+                    int id = renumber[posting.ids[i]];
+                    if (id >= 0) {
+                        ids[size++] = id;
+                    }
+                }
+                if (size == 0) {
+                    continue;
+                }
+                out.writeLong(list.getKey());
+                writeVarint(out, size);
+                int previous = 0;
+                for (int i = 0; i < size; i++) {
+                    writeVarint(out, ids[i] - previous);
+                    previous = ids[i];
+                }
+            }
+        }
+        Files.move(temp, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int liveCount(Posting posting, int[] renumber) {
+        int count = 0;
+        for (int i = 0; i < posting.size; i++) {
+            if (renumber[posting.ids[i]] >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static String abbreviate(String line) {
+        return line.length() <= MAX_LINE_LENGTH ? line : line.substring(0, MAX_LINE_LENGTH) + "...";
+    }
+}
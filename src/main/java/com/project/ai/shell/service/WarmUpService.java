@@ -0,0 +1,63 @@
+package com.project.ai.shell.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * With lazy initialization (the fast profile) nothing touches the database, vector store or chat model before
+ * the prompt. This creates them on a background thread once the context is up, so the scheduled file sync
+ * starts and the first ask does not pay for the connections, then builds the Java symbol index.
+ * ApplicationStartedEvent, not ApplicationReady: the interactive shell runner blocks until exit.
+ */
+@Service
+@Slf4j
+public class WarmUpService {
+
+    private final ObjectProvider<TrackedFileSyncService> syncService;
+    private final ObjectProvider<AskService> askService;
+    private final ObjectProvider<FileService> fileService;
+    private final boolean enabled;
+
+    public WarmUpService(ObjectProvider<TrackedFileSyncService> syncService,
+                         ObjectProvider<AskService> askService,
+                         ObjectProvider<FileService> fileService,
+                         @Value("${shell.startup.warm-up:true}") boolean enabled) {
+        this.syncService = syncService;
+        this.askService = askService;
+        this.fileService = fileService;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void onStarted() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void warmUp() {
+        long start = System.nanoTime();
+        try {
+            syncService.getObject();
+            askService.getObject();
+            log.info("Warm-up done in {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            // Left for the first command that needs it, which reports the error itself
+            log.warn("Warm-up failed: {}", e.getMessage());
+        }
+        try {
+            start = System.nanoTime();
+            int files = fileService.getObject().symbols().size();
+            log.info("Symbol index: {} Java files in {} ms", files, (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Symbol index not built: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.project.ai.shell.session;
+
+import com.project.ai.shell.service.FileService;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One conversation: its own memory window (by conversation id) and project root (by file service)
+ */
+@Getter
+public class Session {
+
+    private final String id;
+    private final String conversationId;
+    private final String projectPath;
+    private final FileService fileService;
+    private volatile long lastAccess;
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger running = new AtomicInteger();
+
+    Session(String id, String conversationId, String projectPath, FileService fileService) {
+        this.id = id;
+        this.conversationId = conversationId;
+        this.projectPath = projectPath;
+        this.fileService = fileService;
+        touch();
+    }
+
+    void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    /**
+     * Whether an ask is running in this session; such a session is never evicted as idle
+     */
+    public boolean isInUse() {
+        return running.get() > 0;
+    }
+
+    void begin() {
+        running.incrementAndGet();
+        touch();
+    }
+
+    void end() {
+        running.decrementAndGet();
+        touch();
+    }
+}
@@ -0,0 +1,256 @@
+package com.project.ai.shell.session;
+
+import com.project.ai.shell.memory.WriteBehindChatMemoryRepository;
+import com.project.ai.shell.service.FileService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live sessions, each with its own conversation id and project root.
+ * <p>
+ * Sessions on the same root share one {@link FileService} (and so one index and watcher); a root's service is
+ * closed when its last session goes. Sessions idle for longer than shell.sessions.idle-timeout are evicted,
+ * unless an ask is running in them, and their memory window is dropped from the chat memory cache (it stays
+ * in the database).
+ */
+@Service
+@Slf4j
+public class SessionRegistry {
+
+    /**
+     * Key in the tool context that carries the session id into tool calls
+     */
+    public static final String SESSION_ID = "sessionId";
+
+    public static final String DEFAULT_SESSION = "shell-conversation";
+
+    /**
+     * Width of SPRING_AI_CHAT_MEMORY.conversation_id in the schema Spring AI creates
+     */
+    static final int MAX_CONVERSATION_ID = 36;
+
+    private record SharedRoot(FileService fileService, int sessions) {
+    }
+
+    private final FileService defaultFileService;
+    private final WriteBehindChatMemoryRepository memoryRepository;
+    private final Duration idleTimeout;
+    private final int maxSessions;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<String, SharedRoot> roots = new ConcurrentHashMap<>();
+
+    public SessionRegistry(FileService defaultFileService,
+                           WriteBehindChatMemoryRepository memoryRepository,
+                           @Value("${shell.sessions.idle-timeout:PT30M}") Duration idleTimeout,
+                           @Value("${shell.sessions.max:1000}") int maxSessions) {
+        this.defaultFileService = defaultFileService;
+        this.memoryRepository = memoryRepository;
+        this.idleTimeout = idleTimeout;
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * The open session with this id
+     *
+     * @throws IllegalArgumentException if there is none (never opened, closed or evicted)
+     */
+    public Session get(String id) {
+        Session session = sessions.get(id);
+        if (session == null) {
+            throw new IllegalArgumentException("No open session " + id);
+        }
+        session.touch();
+        return session;
+    }
+
+    /**
+     * The session with this id, created on the default project root if it does not exist
+     */
+    public Session open(String id) {
+        try {
+            return open(id, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The session with this id, created on the given project path (null = default root) if it does not exist
+     *
+     * @throws IllegalArgumentException if the session exists on another project root
+     */
+    public Session open(String id, String projectPath) throws IOException {
+        Session existing = sessions.get(id);
+        if (existing != null) {
+            checkRoot(existing, projectPath);
+            existing.touch();
+            return existing;
+        }
+        if (sessions.size() >= maxSessions) {
+            throw new IllegalStateException("Too many sessions (" + maxSessions + "), close some first");
+        }
+
+        FileService fileService = projectPath == null || projectPath.isBlank()
+                ? defaultFileService
+                : acquireRoot(projectPath);
+        Session created = new Session(id, conversationId(id), projectPath, fileService);
+        Session raced = sessions.putIfAbsent(id, created);
+        if (raced != null) {
+            releaseRoot(projectPath);
+            checkRoot(raced, projectPath);
+            raced.touch();
+            return raced;
+        }
+        log.info("Opened session {} on {}", id, fileService.getProjectRoot());
+        return created;
+    }
+
+    /**
+     * The memory conversation of a session id: the id itself when it fits the conversation_id column (so the
+     * shell's existing history is kept), else a name-based UUID of it
+     */
+    static String conversationId(String id) {
+        return id.length() <= MAX_CONVERSATION_ID ? id : UUID.nameUUIDFromBytes(id.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static void checkRoot(Session session, String projectPath) {
+        if (!Objects.equals(blankToNull(session.getProjectPath()), blankToNull(projectPath))) {
+            throw new IllegalArgumentException("Session " + session.getId() + " is already open on "
+                    + session.getFileService().getProjectRoot() + ", close it first or use another id");
+        }
+    }
+
+    private static String blankToNull(String projectPath) {
+        return projectPath == null || projectPath.isBlank() ? null : projectPath.strip();
+    }
+
+    /**
+     * Mark an ask as running in the session, so it is not evicted until {@link #end(Session)}
+     *
+     * @throws IllegalArgumentException if the session was closed in the meantime
+     */
+    public void begin(Session session) {
+        // Under the map's lock, so it cannot interleave with an idle eviction
+        if (sessions.computeIfPresent(session.getId(), (id, current) -> {
+            if (current == session) {
+                current.begin();
+            }
+            return current;
+        }) != session) {
+            throw new IllegalArgumentException("No open session " + session.getId());
+        }
+    }
+
+    public void end(Session session) {
+        session.end();
+    }
+
+    public Collection<Session> list() {
+        return List.copyOf(sessions.values());
+    }
+
+    public boolean close(String id) {
+        Session session = sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+        closed(session);
+        return true;
+    }
+
+    private void closed(Session session) {
+        String id = session.getId();
+        releaseRoot(session.getProjectPath());
+        try {
+            memoryRepository.flush(session.getConversationId());
+            memoryRepository.evict(session.getConversationId());
+        } catch (RuntimeException e) {
+            log.warn("Could not flush memory of session {}: {}", id, e.getMessage());
+        }
+        log.info("Closed session {}", id);
+    }
+
+    /**
+     * The file service for the session named in the tool context, or the default one when the context names
+     * none; a tool call for a session that has been closed fails instead of reopening it
+     */
+    public FileService fileService(ToolContext toolContext) {
+        if (toolContext == null || !(toolContext.getContext().get(SESSION_ID) instanceof String id)) {
+            return defaultFileService;
+        }
+        return get(id).getFileService();
+    }
+
+    @Scheduled(fixedDelayString = "${shell.sessions.eviction-interval:PT1M}")
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeout.toMillis();
+        for (Session session : List.copyOf(sessions.values())) {
+            boolean evicted = sessions.computeIfPresent(session.getId(),
+                    (id, current) -> current.isInUse() || current.getLastAccess() >= cutoff ? current : null) == null;
+            if (evicted) {
+                closed(session);
+            }
+        }
+    }
+
+    private FileService acquireRoot(String projectPath) throws IOException {
+        try {
+            return roots.compute(projectPath, (path, shared) -> {
+                if (shared != null) {
+                    return new SharedRoot(shared.fileService(), shared.sessions() + 1);
+                }
+                try {
+                    return new SharedRoot(defaultFileService.forProjectPath(path), 1);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).fileService();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void releaseRoot(String projectPath) {
+        if (projectPath == null || projectPath.isBlank()) {
+            return;
+        }
+        roots.computeIfPresent(projectPath, (path, shared) -> {
+            if (shared.sessions() > 1) {
+                return new SharedRoot(shared.fileService(), shared.sessions() - 1);
+            }
+            closeQuietly(shared.fileService());
+            return null;
+        });
+    }
+
+    private static void closeQuietly(FileService fileService) {
+        try {
+            fileService.close();
+        } catch (IOException e) {
+            log.warn("Could not close file service for {}: {}", fileService.getProjectRoot(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        roots.values().forEach(shared -> closeQuietly(shared.fileService()));
+        roots.clear();
+        sessions.clear();
+    }
+}
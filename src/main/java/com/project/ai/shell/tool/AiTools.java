@@ -1,40 +1,204 @@
 package com.project.ai.shell.tool;
 
-import lombok.RequiredArgsConstructor;
+import com.project.ai.shell.llm.ModelRouter;
+import com.project.ai.shell.metrics.MetricsAdvisor;
+import com.project.ai.shell.metrics.SampledLoggerAdvisor;
+import com.project.ai.shell.service.FileService;
+import com.project.ai.shell.session.SessionRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
+import org.springframework.ai.chat.model.ToolContext;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 import reactor.core.publisher.Flux;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
 
 @Component
 public class AiTools {
     private static final Logger log = LoggerFactory.getLogger(AiTools.class);
 
+    private static final String GENERATOR_PROMPT = """
+                you are a file generator which will generate complete file
+                not just a snippet but complete file including the imports and package names
+                and most importantly you alway generate code in java
+                reply with the file content only, no explanation and no markdown fences
+                """;
 
     private final ChatClient chatClient;
+    private final SessionRegistry sessions;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final ModelRouter modelRouter;
+    private final String defaultModel;
+    private final DataSize cacheMaxSize;
+    private final Duration cacheMaxAge;
 
-    public AiTools(ChatClient.Builder builder) {
-        this.chatClient = builder.build();
+    public AiTools(ChatClient.Builder builder, SessionRegistry sessions, MeterRegistry meterRegistry,
+                   MetricsAdvisor metricsAdvisor, SampledLoggerAdvisor loggerAdvisor, ModelRouter modelRouter,
+                   @Value("${spring.ai.google.genai.chat.options.model:}") String defaultModel,
+                   @Value("${shell.generator.cache.max-size:64MB}") DataSize cacheMaxSize,
+                   @Value("${shell.generator.cache.max-age:P30D}") Duration cacheMaxAge) {
+        this.chatClient = builder.defaultAdvisors(loggerAdvisor, metricsAdvisor).build();
+        this.sessions = sessions;
+        this.cacheHits = Counter.builder("shell.generator.cache").tag("result", "hit").register(meterRegistry);
+        this.cacheMisses = Counter.builder("shell.generator.cache").tag("result", "miss").register(meterRegistry);
+        this.modelRouter = modelRouter;
+        this.defaultModel = defaultModel;
+        this.cacheMaxSize = cacheMaxSize;
+        this.cacheMaxAge = cacheMaxAge;
     }
 
 
-    @Tool(name = "FileGenerator" , description = "Tool which allows to generate complete file")
-    public String readFile(@ToolParam(description = "query of how file you want to generate") String query)
+    /**
+     * Generates straight into the target file; the outer model only gets a short summary back, not the content.
+     * Results are kept in .shell/generated by model and prompt hash so the same request is not generated twice;
+     * the directory is kept under shell.generator.cache.max-size and entries unused for max-age are dropped.
+     */
+    @Tool(name = "FileGenerator" , description = "Tool which generates a complete file and writes it to relativePath. Returns only a summary, the file is already saved so do not call writeInFile with it")
+    public String readFile(@ToolParam(description = "query of how file you want to generate") String query,
+                           @ToolParam(description = "relative path of the file to create or replace") String relativePath,
+                           ToolContext toolContext)
             throws IOException {
 
-        String content = chatClient.prompt().system("""
-                you are a file generator which will generate complete file
-                not just a snippet but complete file including the imports and package names
-                and most importantly you alway generate code in java
-                """).user(query).advisors(new SimpleLoggerAdvisor()).call().content();
-        log.info("File genereation is success successfully: {}", content);
+        FileService fileService = sessions.fileService(toolContext);
+        long start = System.nanoTime();
+        Path cacheDir = fileService.getProjectRoot().resolve(".shell").resolve("generated");
+        String model = modelRouter.forGeneration().getModel();
+        Path cached = cacheDir.resolve(sha256((model == null ? defaultModel : model) + '\0' + GENERATOR_PROMPT + '\0' + query));
+        boolean hit = Files.isRegularFile(cached);
+        (hit ? cacheHits : cacheMisses).increment();
+
+        if (hit) {
+            // The age limit applies to the last use, not to the generation
+            Files.setLastModifiedTime(cached, FileTime.from(Instant.now()));
+        } else {
+            Files.createDirectories(cacheDir);
+            // A private temp file per call, so concurrent generations of the same prompt never share a partial file
+            Path partial = Files.createTempFile(cacheDir, cached.getFileName().toString(), ".part");
+            try (BufferedWriter writer = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+                generate(query).toStream().forEach(line -> write(writer, line));
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(partial);
+                throw e;
+            }
+            Files.move(partial, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            prune(cacheDir);
+        }
+
+        byte[] bytes = Files.readAllBytes(cached);
+        String content = new String(bytes, StandardCharsets.UTF_8);
+        fileService.writeFile(relativePath, content);
+        log.info("Generated {} ({} bytes{}) in {} ms", relativePath, bytes.length, hit ? ", cached" : "",
+                (System.nanoTime() - start) / 1_000_000);
+        log.debug("Generated content for {}:\n{}", relativePath, content);
+
+        return String.format("Generated %s: %d lines, %d bytes%s", relativePath,
+                content.lines().count(), bytes.length, hit ? " (from cache)" : "");
+    }
+
+    /**
+     * Drop entries unused for longer than the max age, then the least recently used ones until the directory
+     * fits the max size. Other calls may be writing or pruning at the same time, so missing files are skipped.
+     */
+    private void prune(Path cacheDir) {
+        record CacheFile(Path path, long size, FileTime lastUsed) {
+        }
+        List<CacheFile> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(cacheDir)) {
+            for (Path path : (Iterable<Path>) listing::iterator) {
+                try {
+                    files.add(new CacheFile(path, Files.size(path), Files.getLastModifiedTime(path)));
+                } catch (IOException e) {
+                    log.debug("Skipping generator cache entry {}: {}", path, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not list generator cache {}: {}", cacheDir, e.getMessage());
+            return;
+        }
+
+        files.sort(Comparator.comparing(CacheFile::lastUsed).reversed());
+        FileTime oldest = FileTime.from(Instant.now().minus(cacheMaxAge));
+        long total = 0;
+        for (CacheFile file : files) {
+            total += file.size();
+            boolean partial = file.path().getFileName().toString().endsWith(".part");
+            // In-flight partial files are never counted out by size, only stale ones by age
+            if (file.lastUsed().compareTo(oldest) < 0 || (!partial && total > cacheMaxSize.toBytes())) {
+                try {
+                    Files.deleteIfExists(file.path());
+                    total -= file.size();
+                } catch (IOException e) {
+                    log.debug("Could not drop generator cache entry {}: {}", file.path(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * The generated file as complete lines, without markdown fences
+     */
+    private Flux<String> generate(String query) {
+        StringBuilder pending = new StringBuilder();
+        Flux<String> tokens = chatClient.prompt()
+                .system(GENERATOR_PROMPT)
+                .options(modelRouter.forGeneration())
+                .user(query)
+                .stream()
+                .content();
+        return tokens
+                .concatMapIterable(token -> {
+                    pending.append(token);
+                    int end = pending.lastIndexOf("\n");
+                    if (end < 0) {
+                        return List.<String>of();
+                    }
+                    String complete = pending.substring(0, end + 1);
+                    pending.delete(0, end + 1);
+                    return complete.lines().toList();
+                })
+                .concatWith(Flux.defer(() -> pending.length() == 0 ? Flux.empty() : Flux.just(pending.toString())))
+                .filter(line -> !line.strip().startsWith("```"));
+    }
+
+    private static void write(BufferedWriter writer, String line) {
+        try {
+            writer.write(line);
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        return content;
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
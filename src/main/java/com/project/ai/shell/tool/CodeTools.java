@@ -0,0 +1,63 @@
+package com.project.ai.shell.tool;
+
+import com.project.ai.shell.session.SessionRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Answers from the Java symbol index, so "where is X defined / used" costs a few lines instead of reading
+ * every file
+ */
+@Component
+@RequiredArgsConstructor
+public class CodeTools {
+
+    private static final int MAX_RESULTS = 50;
+
+    private final SessionRegistry sessions;
+
+    @Tool(name = "findDefinition", description = "Find where a Java class, interface, enum, record, method, field or enum constant is declared. Returns kind, qualified name, path:line and the declaration line. Use Type.member to narrow to one type")
+    public String findDefinition(@ToolParam(description = "simple name, or Type.member") String name,
+                                 ToolContext toolContext) {
+        List<String> found = sessions.fileService(toolContext).symbols().findDefinition(name, MAX_RESULTS);
+        return found.isEmpty() ? "No declaration named " + name : String.join("\n", found);
+    }
+
+    @Tool(name = "findReferences", description = "Find every line of Java code (not comments or strings) that uses a name, as path:line: code. Use it for 'where is X used' instead of reading files")
+    public String findReferences(@ToolParam(description = "simple name of the class, method or field") String name,
+                                 @ToolParam(description = "maximum number of lines to return, default " + MAX_RESULTS, required = false) Integer maxResults,
+                                 ToolContext toolContext) {
+        int limit = maxResults == null || maxResults <= 0 ? MAX_RESULTS : maxResults;
+        List<String> found = sessions.fileService(toolContext).findReferences(name, limit);
+        if (found.isEmpty()) {
+            return "No references to " + name;
+        }
+        return String.join("\n", found) + (found.size() == limit ? "\n... [limit reached, pass a larger maxResults for more]" : "");
+    }
+
+    @Tool(name = "outline", description = "Outline of a Java file: package, imports and every declaration with its line number, without method bodies. Read only the lines you need afterwards")
+    public String outline(@ToolParam(description = "relative path of the Java file") String relativePath,
+                          ToolContext toolContext) {
+        String outline = sessions.fileService(toolContext).symbols().outline(relativePath);
+        return outline == null ? "Not an indexed Java file: " + relativePath : outline;
+    }
+
+    @Tool(name = "findCallers", description = "List the methods that call a method (by name), with path:line")
+    public String findCallers(@ToolParam(description = "method name, or Type.method") String name,
+                              ToolContext toolContext) {
+        List<String> found = sessions.fileService(toolContext).symbols().callers(name, MAX_RESULTS);
+        return found.isEmpty() ? "No callers of " + name : String.join("\n", found);
+    }
+
+    @Tool(name = "findCallees", description = "List the names a method calls, for each method with that name")
+    public String findCallees(@ToolParam(description = "method name, or Type.method") String name,
+                              ToolContext toolContext) {
+        List<String> found = sessions.fileService(toolContext).symbols().callees(name);
+        return found.isEmpty() ? "No method named " + name : String.join("\n", found);
+    }
+}
@@ -1,17 +1,20 @@
 package com.project.ai.shell.tool;
 
 import com.project.ai.shell.service.FileService;
+import com.project.ai.shell.session.SessionRegistry;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ToolContext;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 
 @Component
@@ -21,27 +24,121 @@ public class FileTools {
     private static final Logger log = LoggerFactory.getLogger(FileTools.class);
 
 
-    private final FileService fileService;
+    private static final int MAX_FULL_READ_BYTES = 256 * 1024;
+    private static final int DEFAULT_RANGE_LINES = 200;
+    private static final int MAX_BATCH_CHARS = 512 * 1024;
 
-    @Tool(name = "fileRetrievalTool" , description = "Tool which allows to retrieve any File in the project uisg the file path")
-    public String readFile(@ToolParam(description = "File Path of the file you want to retrive using relativePath") String relativePath)
+    private final SessionRegistry sessions;
+
+    @Tool(name = "fileRetrievalTool" , description = "Tool which allows to retrieve any File in the project uisg the file path. For large files pass startLine/endLine to read only part of it")
+    public String readFile(@ToolParam(description = "File Path of the file you want to retrive using relativePath") String relativePath,
+                           @ToolParam(description = "first line to read (1-based), omit to read from the start", required = false) Integer startLine,
+                           @ToolParam(description = "last line to read (inclusive), omit to read " + DEFAULT_RANGE_LINES + " lines", required = false) Integer endLine,
+                           ToolContext toolContext)
             throws IOException {
+        FileService fileService = sessions.fileService(toolContext);
+
+        if (startLine != null || endLine != null) {
+            int from = startLine == null ? 1 : startLine;
+            int to = endLine == null ? from + DEFAULT_RANGE_LINES - 1 : endLine;
+            // An explicit range is capped like a full read, so endLine=10000000 on a huge log cannot flood the context
+            int last = fileService.lastLineWithin(relativePath, from, to, MAX_FULL_READ_BYTES);
+            if (last < from) {
+                return "[line " + from + " alone is over " + MAX_FULL_READ_BYTES
+                        + " bytes, read it with fileByteRangeTool]";
+            }
+            String text = fileService.readLines(relativePath, from, last);
+            if (last < to && last < fileService.lineCount(relativePath)) {
+                return text + "\n... [output capped at " + MAX_FULL_READ_BYTES + " bytes after line " + last
+                        + ", call fileRetrievalTool with startLine/endLine to read more]";
+            }
+            return text;
+        }
+
+        // Don't flood the context window with huge generated files and logs
+        if (fileService.fileSize(relativePath) > MAX_FULL_READ_BYTES) {
+            int lines = fileService.lineCount(relativePath);
+            return fileService.readLines(relativePath, 1, Math.min(DEFAULT_RANGE_LINES, lines))
+                    + "\n... [file has " + lines + " lines, call fileRetrievalTool with startLine/endLine to read more]";
+        }
 
         return fileService.readFile(relativePath);
 
     }
 
+    @Tool(name = "multiFileRetrievalTool" , description = "Tool which retrieves several files in one call. Prefer it over calling fileRetrievalTool once per file. Large files are cut like in fileRetrievalTool; files past the total size cap are listed so you can ask for them again")
+    public String readFiles(@ToolParam(description = "relative paths of the files to retrieve") List<String> relativePaths,
+                            ToolContext toolContext) {
+        StringBuilder result = new StringBuilder();
+        List<String> skipped = new ArrayList<>();
+        for (String path : relativePaths) {
+            if (result.length() >= MAX_BATCH_CHARS) {
+                skipped.add(path);
+                continue;
+            }
+            String content;
+            try {
+                content = readFile(path, null, null, toolContext);
+            } catch (IOException e) {
+                content = "[error: " + e.getMessage() + "]";
+            }
+            if (result.length() > 0 && result.length() + content.length() > MAX_BATCH_CHARS) {
+                skipped.add(path);
+                continue;
+            }
+            result.append("=== ").append(path).append(" ===\n").append(content);
+            if (!content.endsWith("\n")) {
+                result.append('\n');
+            }
+        }
+        if (!skipped.isEmpty()) {
+            result.append("... [size cap reached, not included: ").append(String.join(", ", skipped)).append("]");
+        }
+        return result.toString();
+    }
+
+    @Tool(name = "fileByteRangeTool" , description = "Tool which reads a byte range of a file, useful for huge files without line breaks")
+    public String readBytes(@ToolParam(description = "relative path of file") String relativePath,
+                            @ToolParam(description = "byte offset to start reading at") Long offset,
+                            @ToolParam(description = "number of bytes to read") Integer length,
+                            ToolContext toolContext)
+            throws IOException {
+
+        return sessions.fileService(toolContext).readBytes(relativePath, offset, Math.min(length, MAX_FULL_READ_BYTES));
+    }
+
     @Tool(name = "listAllFilePaths" , description = "Tool which allows to get File from project and get their file path")
-    public List<String> getAllFilePaths() throws IOException {
-        return fileService.listAllFiles();
+    public List<String> getAllFilePaths(ToolContext toolContext) throws IOException {
+        return sessions.fileService(toolContext).listAllFiles();
     }
 
 
+    @Tool(name = "grepTool" , description = "Tool which searches the content of all project files for a text and returns the matching lines as path:line: text. Use it to find where something is defined or used instead of reading files one by one")
+    public List<String> grep(@ToolParam(description = "exact text to search for") String query,
+                             @ToolParam(description = "ignore upper/lower case, default false", required = false) Boolean ignoreCase,
+                             @ToolParam(description = "maximum number of matching lines, default 100", required = false) Integer maxResults,
+                             ToolContext toolContext)
+            throws IOException {
+
+        return sessions.fileService(toolContext).searchContent(query,
+                Boolean.TRUE.equals(ignoreCase),
+                maxResults == null || maxResults <= 0 ? 100 : maxResults);
+    }
+
+    @Tool(name = "patchFile" , description = "Tool which edits an existing file without resending it. Pass either a unified diff (@@ hunks) or blocks of the form <<<<<<< SEARCH / old lines / ======= / new lines / >>>>>>> REPLACE, where each search text occurs exactly once. Prefer it over writeInFile for changes to existing files")
+    public String patch(@ToolParam(description = "relative path of file") String relativePath,
+                        @ToolParam(description = "unified diff or SEARCH/REPLACE blocks") String patch,
+                        ToolContext toolContext) throws IOException {
+        int edits = sessions.fileService(toolContext).patchFile(relativePath, patch);
+        return "Patched " + relativePath + ": " + edits + " edit(s) applied";
+    }
+
     @Tool(name = "writeInFile" , description = "Tool which allows to write in a file / edit a file ")
-    public String write(@ToolParam(description = "relative path of file" ) String relativePath, @ToolParam(description = "content you want to write in file" ) String content ) throws IOException {
-        fileService.writeFile(relativePath,content);
-        log.info(relativePath + " written to " + content);
-        return relativePath + File.separator + content + "successfully updated";
+    public String write(@ToolParam(description = "relative path of file" ) String relativePath, @ToolParam(description = "content you want to write in file" ) String content, ToolContext toolContext) throws IOException {
+        sessions.fileService(toolContext).writeFile(relativePath,content);
+        int bytes = content.getBytes(StandardCharsets.UTF_8).length;
+        log.debug("writeInFile {} ({} bytes)", relativePath, bytes);
+        return "Wrote " + relativePath + ": " + content.lines().count() + " lines, " + bytes + " bytes";
     }
 
 
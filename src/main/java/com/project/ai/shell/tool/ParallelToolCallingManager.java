@@ -0,0 +1,89 @@
+package com.project.ai.shell.tool;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * {@link ToolCallingManager} that runs the tool calls of one model turn concurrently.
+ * <p>
+ * Each call is handed to the delegate on its own, so tool resolution, observations and error handling stay
+ * those of the default manager. The responses are put back together in the order the model asked for them.
+ */
+public class ParallelToolCallingManager implements ToolCallingManager {
+
+    private final ToolCallingManager delegate;
+    private final ExecutorService executor;
+
+    public ParallelToolCallingManager(ToolCallingManager delegate, ExecutorService executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions chatOptions) {
+        return delegate.resolveToolDefinitions(chatOptions);
+    }
+
+    @Override
+    public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+        AssistantMessage assistant = chatResponse.getResults().stream()
+                .map(Generation::getOutput)
+                .filter(AssistantMessage::hasToolCalls)
+                .findFirst()
+                .orElse(null);
+        if (assistant == null || assistant.getToolCalls().size() < 2) {
+            return delegate.executeToolCalls(prompt, chatResponse);
+        }
+
+        List<CompletableFuture<ToolExecutionResult>> calls = new ArrayList<>();
+        for (AssistantMessage.ToolCall toolCall : assistant.getToolCalls()) {
+            AssistantMessage single = AssistantMessage.builder()
+                    .content(assistant.getText())
+                    .properties(assistant.getMetadata())
+                    .toolCalls(List.of(toolCall))
+                    .build();
+            ChatResponse singleResponse = new ChatResponse(List.of(new Generation(single)), chatResponse.getMetadata());
+            calls.add(CompletableFuture.supplyAsync(() -> delegate.executeToolCalls(prompt, singleResponse), executor));
+        }
+
+        List<ToolResponseMessage.ToolResponse> responses = new ArrayList<>();
+        boolean returnDirect = true;
+        List<Message> history = null;
+        try {
+            for (CompletableFuture<ToolExecutionResult> call : calls) {
+                ToolExecutionResult result = call.join();
+                List<Message> messages = result.conversationHistory();
+                // Delegate history is the prompt, then the assistant message, then the tool response
+                if (history == null) {
+                    history = new ArrayList<>(messages.subList(0, messages.size() - 2));
+                }
+                responses.addAll(((ToolResponseMessage) messages.get(messages.size() - 1)).getResponses());
+                returnDirect &= result.returnDirect();
+            }
+        } catch (CompletionException e) {
+            calls.forEach(call -> call.cancel(true));
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+        }
+
+        history.add(assistant);
+        history.add(new ToolResponseMessage(responses));
+        return ToolExecutionResult.builder()
+                .conversationHistory(history)
+                .returnDirect(returnDirect)
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.project.ai.shell.tool;
+
+import com.project.ai.shell.service.FileService;
+import com.project.ai.shell.session.SessionRegistry;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Searches the chunks that EmbeddingIndexService keeps in the vector store, for questions that name a
+ * behaviour rather than an identifier. Only the default project root is embedded.
+ */
+@Component
+public class SemanticSearchTools {
+
+    private static final int DEFAULT_RESULTS = 5;
+    private static final int MAX_RESULTS = 20;
+
+    private final SessionRegistry sessions;
+    private final FileService defaultFileService;
+    private final VectorStore vectorStore;
+
+    public SemanticSearchTools(SessionRegistry sessions, FileService defaultFileService, @Lazy VectorStore vectorStore) {
+        this.sessions = sessions;
+        this.defaultFileService = defaultFileService;
+        this.vectorStore = vectorStore;
+    }
+
+    @Tool(name = "semanticSearch", description = "Find the code chunks most related to a description in plain words (e.g. 'where are retries configured'), as path:startLine-endLine with the chunk text. Use grepTool or findDefinition when you know the exact name")
+    public String semanticSearch(@ToolParam(description = "what the code you look for does") String query,
+                                 @ToolParam(description = "number of chunks to return, default " + DEFAULT_RESULTS, required = false) Integer maxResults,
+                                 ToolContext toolContext) {
+        if (sessions.fileService(toolContext) != defaultFileService) {
+            return "Semantic search only covers the default project root; use grepTool or findDefinition here";
+        }
+        int topK = maxResults == null || maxResults <= 0 ? DEFAULT_RESULTS : Math.min(maxResults, MAX_RESULTS);
+        List<Document> found = vectorStore.similaritySearch(SearchRequest.builder().query(query).topK(topK).build());
+        if (found == null || found.isEmpty()) {
+            return "No indexed chunks match " + query;
+        }
+        StringBuilder result = new StringBuilder();
+        for (Document document : found) {
+            result.append("=== ").append(document.getMetadata().get("path"))
+                    .append(':').append(document.getMetadata().get("startLine"))
+                    .append('-').append(document.getMetadata().get("endLine"));
+            if (document.getScore() != null) {
+                result.append(String.format(" (score %.2f)", document.getScore()));
+            }
+            result.append(" ===\n").append(document.getText());
+            if (!document.getText().endsWith("\n")) {
+                result.append('\n');
+            }
+        }
+        return result.toString();
+    }
+}
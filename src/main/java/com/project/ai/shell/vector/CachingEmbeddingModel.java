@@ -0,0 +1,202 @@
+package com.project.ai.shell.vector;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link EmbeddingModel} decorator that never embeds the same text twice.
+ * <p>
+ * Vectors are appended to a cache file keyed by the SHA-256 of the model, dimensions and text, so switching
+ * models never serves stale vectors; only the key-to-offset map is kept on the heap and vectors are read back with positional reads. Texts missing from the cache are sent to the
+ * delegate in one request, so batching is preserved.
+ */
+@Slf4j
+public class CachingEmbeddingModel implements EmbeddingModel, Closeable {
+
+    private static final int KEY_BYTES = 32;
+
+    private final EmbeddingModel delegate;
+    private final String model;
+    private final FileChannel channel;
+    private final Map<String, Long> offsets = new ConcurrentHashMap<>();
+
+    private long hits;
+    private long misses;
+
+    /**
+     * @param model the configured model name and dimensions (e.g. {@code text-embedding-004/768}), used when a
+     *              request does not name its own
+     */
+    public CachingEmbeddingModel(EmbeddingModel delegate, Path cacheFile, String model) throws IOException {
+        this.delegate = delegate;
+        this.model = delegate.getClass().getName() + "/" + model;
+        Files.createDirectories(cacheFile.getParent());
+        this.channel = FileChannel.open(cacheFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        load();
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        float[][] vectors = new float[texts.size()][];
+        List<String> missing = new ArrayList<>();
+        List<Integer> missingIndexes = new ArrayList<>();
+        String namespace = namespace(request.getOptions());
+
+        for (int i = 0; i < texts.size(); i++) {
+            vectors[i] = lookup(key(namespace, texts.get(i)));
+            if (vectors[i] == null) {
+                missing.add(texts.get(i));
+                missingIndexes.add(i);
+            }
+        }
+
+        synchronized (this) {
+            hits += texts.size() - missing.size();
+            misses += missing.size();
+        }
+
+        if (!missing.isEmpty()) {
+            EmbeddingResponse response = delegate.call(new EmbeddingRequest(missing, request.getOptions()));
+            List<Embedding> results = response.getResults();
+            for (int i = 0; i < results.size(); i++) {
+                int index = missingIndexes.get(i);
+                vectors[index] = results.get(i).getOutput();
+                store(key(namespace, texts.get(index)), vectors[index]);
+            }
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(vectors.length);
+        for (int i = 0; i < vectors.length; i++) {
+            embeddings.add(new Embedding(vectors[i], i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getFormattedContent(MetadataMode.EMBED));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    private float[] lookup(String key) {
+        Long offset = offsets.get(key);
+        if (offset == null) {
+            return null;
+        }
+        try {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(header, offset + KEY_BYTES);
+            int dims = header.flip().getInt();
+            ByteBuffer body = ByteBuffer.allocate(dims * Float.BYTES);
+            channel.read(body, offset + KEY_BYTES + Integer.BYTES);
+            float[] vector = new float[dims];
+            body.flip().asFloatBuffer().get(vector);
+            return vector;
+        } catch (IOException e) {
+            log.debug("Embedding cache read failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private synchronized void store(String key, float[] vector) {
+        if (offsets.containsKey(key)) {
+            return;
+        }
+        ByteBuffer record = ByteBuffer.allocate(KEY_BYTES + Integer.BYTES + vector.length * Float.BYTES);
+        record.put(HexFormat.of().parseHex(key)).putInt(vector.length);
+        record.asFloatBuffer().put(vector);
+        record.position(record.capacity()).flip();
+        try {
+            long offset = channel.size();
+            while (record.hasRemaining()) {
+                channel.write(record, offset + record.position());
+            }
+            offsets.put(key, offset);
+        } catch (IOException e) {
+            log.warn("Embedding cache write failed: {}", e.getMessage());
+        }
+    }
+
+    private void load() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(KEY_BYTES + Integer.BYTES);
+        while (position + header.capacity() <= size) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            byte[] key = new byte[KEY_BYTES];
+            header.get(key);
+            int dims = header.getInt();
+            long next = position + header.capacity() + (long) dims * Float.BYTES;
+            if (dims <= 0 || next > size) {
+                break;
+            }
+            offsets.put(HexFormat.of().formatHex(key), position);
+            position = next;
+        }
+        if (position < size) {
+            // Torn write from a crash: drop the partial record
+            channel.truncate(position);
+        }
+        log.info("Loaded {} cached embeddings", offsets.size());
+    }
+
+    private String namespace(EmbeddingOptions options) {
+        if (options == null || (options.getModel() == null && options.getDimensions() == null)) {
+            return model;
+        }
+        return delegate.getClass().getName() + "/" + options.getModel() + "/" + options.getDimensions();
+    }
+
+    private static String key(String namespace, String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(namespace.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,649 @@
+package com.project.ai.shell.vector;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionConverter;
+import org.springframework.ai.vectorstore.filter.converter.SimpleVectorStoreFilterExpressionConverter;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-process {@link VectorStore} backed by memory-mapped files, for offline use and low-latency retrieval.
+ * <p>
+ * Vectors are normalized and stored off-heap in fixed-size slots of {@code vectors.f32}, so cosine similarity
+ * is a dot product; the file is mapped in segments of at most 1 GB, so it can grow past 2 GB. Document text
+ * and metadata live in an append-only journal ({@code documents.jsonl}) that is replayed on startup and
+ * compacted when it is mostly dead records.
+ * <p>
+ * Small stores are searched exhaustively. Once there are enough vectors an IVF index is trained (k-means over
+ * a sample, k ≈ √n) and a search only scans the lists of the {@code nprobe} closest centroids. The centroids are
+ * saved to {@code ivf.bin} and the list of every slot to {@code lists.i32}, so startup does not retrain; the
+ * vectors themselves are never copied onto the heap.
+ */
+@Slf4j
+public class LocalVectorStore implements VectorStore, Closeable {
+
+    private static final int HEADER_BYTES = 16;
+    private static final int MAGIC = 0x56454331; // "VEC1"
+    private static final int IVF_MAGIC = 0x49564631; // "IVF1"
+    private static final long SEGMENT_BYTES = 1L << 30;
+    private static final int ASSIGNMENT_HEADER_BYTES = 8;
+    private static final int INITIAL_SLOTS = 1024;
+    private static final int KMEANS_ITERATIONS = 10;
+    private static final int KMEANS_SAMPLE = 20_000;
+
+    private record Entry(int slot, String id, String text, Map<String, Object> metadata) {
+    }
+
+    private record Scored(int slot, float score) {
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final Path vectorFile;
+    private final Path journalFile;
+    private final Path centroidFile;
+    private final Path assignmentFile;
+    private final int trainThreshold;
+    private final int nprobe;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExpressionParser expressionParser = new SpelExpressionParser();
+    private final FilterExpressionConverter filterConverter = new SimpleVectorStoreFilterExpressionConverter();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Entry> byId = new HashMap<>();
+    private final Map<Integer, Entry> bySlot = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private int nextSlot;
+    private int journalRecords;
+
+    private FileChannel channel;
+    private final List<FloatBuffer> segments = new ArrayList<>();
+    private int segmentSlots;
+    private int dimensions;
+    private int capacity;
+
+    // List of every slot plus one (0 = none), headed by the generation of the centroids it was computed for
+    private FileChannel assignmentChannel;
+    private MappedByteBuffer assignmentHeader;
+    private IntBuffer assignments;
+
+    private float[][] centroids;
+    private List<Set<Integer>> lists;
+    private int trainedAt;
+    private int generation;
+
+    public LocalVectorStore(EmbeddingModel embeddingModel, Path directory, int trainThreshold, int nprobe) throws IOException {
+        this.embeddingModel = embeddingModel;
+        this.vectorFile = directory.resolve("vectors.f32");
+        this.journalFile = directory.resolve("documents.jsonl");
+        this.centroidFile = directory.resolve("ivf.bin");
+        this.assignmentFile = directory.resolve("lists.i32");
+        this.trainThreshold = trainThreshold;
+        this.nprobe = nprobe;
+        Files.createDirectories(directory);
+        load();
+    }
+
+    @Override
+    public String getName() {
+        return "LocalVectorStore";
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        List<String> texts = documents.stream().map(Document::getText).toList();
+        List<float[]> embeddings = embeddingModel.embed(texts);
+
+        lock.writeLock().lock();
+        try {
+            List<Map<String, Object>> journal = new ArrayList<>();
+            for (int i = 0; i < documents.size(); i++) {
+                Document document = documents.get(i);
+                float[] vector = embeddings.get(i);
+                ensureDimensions(vector.length);
+
+                Entry previous = byId.remove(document.getId());
+                if (previous != null) {
+                    release(previous);
+                }
+
+                int slot = freeSlots.isEmpty() ? nextSlot++ : freeSlots.pop();
+                ensureCapacity(slot + 1);
+                writeVector(slot, normalize(vector));
+
+                Entry entry = new Entry(slot, document.getId(), document.getText(), new LinkedHashMap<>(document.getMetadata()));
+                byId.put(entry.id(), entry);
+                bySlot.put(slot, entry);
+                if (centroids != null) {
+                    assign(slot, nearestCentroid(slot));
+                }
+                journal.add(Map.of("op", "add", "slot", slot, "id", entry.id(),
+                        "text", entry.text() == null ? "" : entry.text(), "metadata", entry.metadata()));
+            }
+            appendJournal(journal);
+            maybeTrain();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        lock.writeLock().lock();
+        try {
+            List<Map<String, Object>> journal = new ArrayList<>();
+            for (String id : idList) {
+                Entry entry = byId.remove(id);
+                if (entry != null) {
+                    release(entry);
+                    journal.add(Map.of("op", "delete", "id", id));
+                }
+            }
+            appendJournal(journal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        Predicate<Map<String, Object>> filter = filterPredicate(filterExpression);
+        List<String> ids;
+        lock.readLock().lock();
+        try {
+            ids = byId.values().stream().filter(e -> filter.test(e.metadata())).map(Entry::id).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+        delete(ids);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        float[] query = normalize(embeddingModel.embed(request.getQuery()));
+        Predicate<Map<String, Object>> filter = request.hasFilterExpression()
+                ? filterPredicate(request.getFilterExpression())
+                : metadata -> true;
+
+        lock.readLock().lock();
+        try {
+            if (segments.isEmpty() || byId.isEmpty()) {
+                return List.of();
+            }
+            PriorityQueue<Scored> top = new PriorityQueue<>(Comparator.comparingDouble(Scored::score));
+            for (int slot : candidateSlots(query)) {
+                Entry entry = bySlot.get(slot);
+                if (entry == null || !filter.test(entry.metadata())) {
+                    continue;
+                }
+                float score = dot(query, slot);
+                if (score < request.getSimilarityThreshold()) {
+                    continue;
+                }
+                top.add(new Scored(slot, score));
+                if (top.size() > request.getTopK()) {
+                    top.poll();
+                }
+            }
+
+            List<Document> results = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                Scored scored = top.poll();
+                Entry entry = bySlot.get(scored.slot());
+                results.add(0, Document.builder()
+                        .id(entry.id())
+                        .text(entry.text())
+                        .metadata(entry.metadata())
+                        .score((double) scored.score())
+                        .build());
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Iterable<Integer> candidateSlots(float[] query) {
+        if (centroids == null) {
+            return bySlot.keySet();
+        }
+        PriorityQueue<Scored> closest = new PriorityQueue<>(Comparator.comparingDouble(Scored::score));
+        for (int c = 0; c < centroids.length; c++) {
+            closest.add(new Scored(c, dot(query, centroids[c])));
+            if (closest.size() > nprobe) {
+                closest.poll();
+            }
+        }
+        List<Integer> slots = new ArrayList<>();
+        for (Scored centroid : closest) {
+            slots.addAll(lists.get(centroid.slot()));
+        }
+        return slots;
+    }
+
+    private void release(Entry entry) {
+        bySlot.remove(entry.slot());
+        freeSlots.push(entry.slot());
+        if (lists != null) {
+            int list = assignments.get(entry.slot()) - 1;
+            if (list >= 0 && list < lists.size()) {
+                lists.get(list).remove(entry.slot());
+            }
+            assignments.put(entry.slot(), 0);
+        }
+    }
+
+    private void assign(int slot, int list) {
+        lists.get(list).add(slot);
+        assignments.put(slot, list + 1);
+    }
+
+    private void newLists(int k) {
+        lists = new ArrayList<>(k);
+        for (int c = 0; c < k; c++) {
+            lists.add(new HashSet<>());
+        }
+    }
+
+    /**
+     * (Re)train the IVF index when the store has grown enough since the last training
+     */
+    private void maybeTrain() {
+        int size = bySlot.size();
+        if (size < trainThreshold || (centroids != null && size < trainedAt * 4)) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<Integer> slots = new ArrayList<>(bySlot.keySet());
+        int k = Math.max(1, (int) Math.sqrt(size));
+        Random random = new Random(42);
+
+        float[][] trained = new float[k][];
+        for (int c = 0; c < k; c++) {
+            trained[c] = readVector(slots.get(random.nextInt(slots.size())));
+        }
+
+        List<Integer> sample = slots.size() <= KMEANS_SAMPLE ? slots : randomSample(slots, random);
+        for (int iteration = 0; iteration < KMEANS_ITERATIONS; iteration++) {
+            float[][] sums = new float[k][dimensions];
+            int[] counts = new int[k];
+            for (int slot : sample) {
+                int c = nearest(trained, slot);
+                counts[c]++;
+                FloatBuffer segment = segment(slot);
+                int base = offset(slot);
+                for (int d = 0; d < dimensions; d++) {
+                    sums[c][d] += segment.get(base + d);
+                }
+            }
+            for (int c = 0; c < k; c++) {
+                if (counts[c] > 0) {
+                    trained[c] = normalize(sums[c]);
+                }
+            }
+        }
+
+        centroids = trained;
+        trainedAt = size;
+        generation++;
+        // Invalidate the saved lists until both files describe the same training
+        assignmentHeader.putInt(0, 0);
+        newLists(k);
+        for (int slot : slots) {
+            assign(slot, nearestCentroid(slot));
+        }
+        saveCentroids();
+        assignmentHeader.putInt(0, generation);
+        log.info("Trained IVF index with {} lists over {} vectors in {} ms", k, size, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private List<Integer> randomSample(List<Integer> slots, Random random) {
+        List<Integer> sample = new ArrayList<>(KMEANS_SAMPLE);
+        for (int i = 0; i < KMEANS_SAMPLE; i++) {
+            sample.add(slots.get(random.nextInt(slots.size())));
+        }
+        return sample;
+    }
+
+    private int nearestCentroid(int slot) {
+        return nearest(centroids, slot);
+    }
+
+    private int nearest(float[][] candidates, int slot) {
+        int best = 0;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int c = 0; c < candidates.length; c++) {
+            float score = dot(candidates[c], slot);
+            if (score > bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private float dot(float[] query, int slot) {
+        FloatBuffer segment = segment(slot);
+        int base = offset(slot);
+        float sum = 0;
+        for (int d = 0; d < dimensions; d++) {
+            sum += query[d] * segment.get(base + d);
+        }
+        return sum;
+    }
+
+    private FloatBuffer segment(int slot) {
+        return segments.get(slot / segmentSlots);
+    }
+
+    /**
+     * Offset of a slot inside its segment, in floats; a segment holds at most 2^28 floats so this never overflows
+     */
+    private int offset(int slot) {
+        return (slot % segmentSlots) * dimensions;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int d = 0; d < a.length; d++) {
+            sum += a[d] * b[d];
+        }
+        return sum;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        for (int d = 0; d < vector.length; d++) {
+            normalized[d] = norm == 0 ? 0 : (float) (vector[d] / norm);
+        }
+        return normalized;
+    }
+
+    private float[] readVector(int slot) {
+        float[] vector = new float[dimensions];
+        segment(slot).get(offset(slot), vector);
+        return vector;
+    }
+
+    private void writeVector(int slot, float[] vector) {
+        segment(slot).put(offset(slot), vector);
+    }
+
+    private void ensureDimensions(int dims) {
+        if (dimensions == 0) {
+            dimensions = dims;
+            mapVectors(INITIAL_SLOTS);
+        } else if (dimensions != dims) {
+            throw new IllegalArgumentException("Embedding has " + dims + " dimensions, store expects " + dimensions);
+        }
+    }
+
+    private void ensureCapacity(int slots) {
+        if (slots > capacity) {
+            mapVectors(Math.max(slots, capacity * 2));
+        }
+    }
+
+    /**
+     * Map the vector file with room for the given number of slots (growing the file if needed). Full segments
+     * stay mapped as they are; only the last, partial one is remapped when the store grows.
+     */
+    private void mapVectors(int slots) {
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(vectorFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            if (segmentSlots == 0) {
+                segmentSlots = (int) Math.max(1, SEGMENT_BYTES / ((long) dimensions * Float.BYTES));
+                channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES).putInt(0, MAGIC).putInt(4, dimensions);
+            }
+            long segmentBytes = (long) segmentSlots * dimensions * Float.BYTES;
+            for (int s = capacity / segmentSlots; (long) s * segmentSlots < slots; s++) {
+                long segmentCapacity = Math.min(segmentSlots, slots - (long) s * segmentSlots);
+                FloatBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + s * segmentBytes,
+                        segmentCapacity * dimensions * Float.BYTES).asFloatBuffer();
+                if (s < segments.size()) {
+                    segments.set(s, segment);
+                } else {
+                    segments.add(segment);
+                }
+            }
+            capacity = slots;
+            mapAssignments(slots);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not map vector file " + vectorFile, e);
+        }
+    }
+
+    private void mapAssignments(int slots) throws IOException {
+        if (assignmentChannel == null) {
+            assignmentChannel = FileChannel.open(assignmentFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        // One int per slot: 2 GB is over 500 million vectors, far beyond what the vector file can serve
+        long bytes = ASSIGNMENT_HEADER_BYTES + (long) slots * Integer.BYTES;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Local vector store is limited to " + (Integer.MAX_VALUE / Integer.BYTES - 2) + " vectors");
+        }
+        assignmentHeader = assignmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        assignments = assignmentHeader.slice(ASSIGNMENT_HEADER_BYTES, (int) bytes - ASSIGNMENT_HEADER_BYTES).asIntBuffer();
+    }
+
+    private void saveCentroids() {
+        Path temp = centroidFile.resolveSibling(centroidFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(IVF_MAGIC);
+            out.writeInt(dimensions);
+            out.writeInt(centroids.length);
+            out.writeInt(trainedAt);
+            out.writeInt(generation);
+            for (float[] centroid : centroids) {
+                for (float v : centroid) {
+                    out.writeFloat(v);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write IVF centroids " + centroidFile, e);
+        }
+        try {
+            Files.move(temp, centroidFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write IVF centroids " + centroidFile, e);
+        }
+    }
+
+    /**
+     * Restore the IVF index saved by the last training; slots whose saved list is missing or stale are assigned
+     * again, which is all of them only if the process died while training
+     */
+    private void loadCentroids() throws IOException {
+        if (!Files.isRegularFile(centroidFile) || byId.isEmpty()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(centroidFile)))) {
+            if (in.readInt() != IVF_MAGIC || in.readInt() != dimensions) {
+                log.warn("Ignoring IVF centroids {} written for another format or dimensions", centroidFile);
+                return;
+            }
+            float[][] loaded = new float[in.readInt()][dimensions];
+            trainedAt = in.readInt();
+            generation = in.readInt();
+            for (float[] centroid : loaded) {
+                for (int d = 0; d < dimensions; d++) {
+                    centroid[d] = in.readFloat();
+                }
+            }
+            centroids = loaded;
+        }
+        boolean saved = assignmentHeader.getInt(0) == generation;
+        int reassigned = 0;
+        newLists(centroids.length);
+        for (int slot : bySlot.keySet()) {
+            int list = saved ? assignments.get(slot) - 1 : -1;
+            if (list < 0 || list >= centroids.length) {
+                list = nearestCentroid(slot);
+                reassigned++;
+            }
+            assign(slot, list);
+        }
+        assignmentHeader.putInt(0, generation);
+        log.info("Loaded IVF index with {} lists, {} vectors reassigned", centroids.length, reassigned);
+    }
+
+    private void appendJournal(List<Map<String, Object>> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(journalFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Map<String, Object> record : records) {
+                writer.write(objectMapper.writeValueAsString(record));
+                writer.newLine();
+            }
+            journalRecords += records.size();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write vector store journal " + journalFile, e);
+        }
+    }
+
+    private void load() throws IOException {
+        if (Files.isRegularFile(vectorFile) && Files.size(vectorFile) >= HEADER_BYTES) {
+            channel = FileChannel.open(vectorFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt(0) == MAGIC) {
+                dimensions = header.getInt(4);
+                mapVectors((int) ((channel.size() - HEADER_BYTES) / ((long) dimensions * Float.BYTES)));
+            }
+        }
+
+        if (Files.isRegularFile(journalFile) && dimensions > 0) {
+            try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    journalRecords++;
+                    Map<String, Object> record = objectMapper.readValue(line, new TypeReference<>() {
+                    });
+                    String id = (String) record.get("id");
+                    Entry previous = byId.remove(id);
+                    if (previous != null) {
+                        bySlot.remove(previous.slot());
+                    }
+                    if ("add".equals(record.get("op"))) {
+                        int slot = ((Number) record.get("slot")).intValue();
+                        @SuppressWarnings("unchecked")
+                        Map<String, Object> metadata = (Map<String, Object>) record.get("metadata");
+                        Entry entry = new Entry(slot, id, (String) record.get("text"), metadata);
+                        byId.put(id, entry);
+                        bySlot.put(slot, entry);
+                        nextSlot = Math.max(nextSlot, slot + 1);
+                    }
+                }
+            }
+        }
+
+        for (int slot = 0; slot < nextSlot; slot++) {
+            if (!bySlot.containsKey(slot)) {
+                freeSlots.push(slot);
+            }
+        }
+        if (journalRecords > 2 * byId.size() + 1000) {
+            compactJournal();
+        }
+        if (!byId.isEmpty()) {
+            loadCentroids();
+            maybeTrain();
+        }
+        log.info("Loaded local vector store with {} documents from {}", byId.size(), vectorFile.getParent());
+    }
+
+    private void compactJournal() throws IOException {
+        Path temp = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Entry entry : bySlot.values()) {
+                writer.write(objectMapper.writeValueAsString(Map.of("op", "add", "slot", entry.slot(), "id", entry.id(),
+                        "text", entry.text() == null ? "" : entry.text(), "metadata", entry.metadata())));
+                writer.newLine();
+            }
+        }
+        Files.move(temp, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journalRecords = byId.size();
+    }
+
+    private Predicate<Map<String, Object>> filterPredicate(Filter.Expression expression) {
+        var parsed = expressionParser.parseExpression(filterConverter.convertExpression(expression));
+        return metadata -> {
+            StandardEvaluationContext context = new StandardEvaluationContext();
+            context.setVariable("metadata", metadata);
+            return Boolean.TRUE.equals(parsed.getValue(context, Boolean.class));
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        if (assignmentChannel != null) {
+            assignmentChannel.close();
+        }
+    }
+}
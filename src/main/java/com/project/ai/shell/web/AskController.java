@@ -0,0 +1,112 @@
+package com.project.ai.shell.web;
+
+import com.project.ai.shell.records.AskRequest;
+import com.project.ai.shell.service.AskService;
+import com.project.ai.shell.session.SessionRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.Principal;
+import java.util.regex.Pattern;
+
+/**
+ * The ask pipeline over HTTP: POST /api/ask streams the answer as Server-Sent Events ("token" events, then
+ * "done", or "error").
+ * <p>
+ * Requests are admitted by {@link AskLimiter}, which answers 429 (client over its rate) or 503 (queue full)
+ * before anything is streamed. The token stream is buffered up to shell.api.max-buffered-tokens for a slow
+ * reader; a reader further behind gets an error event and generation stops, so one slow client cannot pin
+ * a generation slot.
+ * <p>
+ * The asks run the file-writing tools on the project root, so the server listens on the loopback address
+ * unless server.address says otherwise, and when shell.api.token is set every request must carry it as
+ * {@code Authorization: Bearer <token>} (401 otherwise). There is no other authentication.
+ * <p>
+ * A client is the container's user principal if one is set, else its remote address. Session names are scoped
+ * to the client: the registry id is {@code api:<client>:<name>}, so a client can only reach the sessions it
+ * created and never the shell's or batch sessions.
+ */
+@RestController
+@Slf4j
+public class AskController {
+
+    private static final Pattern SESSION_NAME = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+    private static final String DEFAULT_NAME = "default";
+
+    private final AskService askService;
+    private final SessionRegistry sessions;
+    private final AskLimiter limiter;
+    private final int maxBufferedTokens;
+    private final byte[] expectedAuthorization;
+
+    public AskController(AskService askService, SessionRegistry sessions, AskLimiter limiter,
+                         @Value("${shell.api.max-buffered-tokens:4096}") int maxBufferedTokens,
+                         @Value("${shell.api.token:}") String token) {
+        this.askService = askService;
+        this.sessions = sessions;
+        this.limiter = limiter;
+        this.maxBufferedTokens = maxBufferedTokens;
+        this.expectedAuthorization = token == null || token.isBlank()
+                ? null
+                : ("Bearer " + token.strip()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @PostMapping(path = "/api/ask", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> ask(@RequestBody AskRequest request, HttpServletRequest http) {
+        checkToken(http);
+        if (request.query() == null || request.query().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "query is required");
+        }
+        String name = request.session() == null || request.session().isBlank() ? DEFAULT_NAME : request.session();
+        if (!SESSION_NAME.matcher(name).matches() || name.equals(SessionRegistry.DEFAULT_SESSION)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "session must be 1-64 letters, digits, '.', '_' or '-' and not a reserved name");
+        }
+        Principal principal = http.getUserPrincipal();
+        String client = principal != null ? "user-" + principal.getName() : http.getRemoteAddr();
+        String sessionId = "api:" + client + ":" + name;
+
+        // Admission first: a rejected request must not create (or touch) a session
+        Flux<Runnable> permit;
+        try {
+            permit = limiter.reserve(client).flux();
+        } catch (AskLimiter.RejectedException e) {
+            throw new ResponseStatusException(e.isRateLimited() ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE,
+                    e.getMessage());
+        }
+
+        return permit.flatMap(release -> Flux.defer(() -> askService.stream(request.query(), sessions.open(sessionId)))
+                        .map(token -> ServerSentEvent.builder(token).event("token").build())
+                        .onBackpressureBuffer(maxBufferedTokens, BufferOverflowStrategy.ERROR)
+                        .concatWith(Flux.just(ServerSentEvent.builder("").event("done").build()))
+                        .doFinally(signal -> release.run()))
+                .onErrorResume(e -> {
+                    log.warn("Ask for client {} failed: {}", client, e.getMessage());
+                    return Flux.just(ServerSentEvent.builder(String.valueOf(e.getMessage())).event("error").build());
+                });
+    }
+
+    private void checkToken(HttpServletRequest http) {
+        if (expectedAuthorization == null) {
+            return;
+        }
+        String header = http.getHeader(HttpHeaders.AUTHORIZATION);
+        // Constant time, so the token cannot be guessed byte by byte from response times
+        if (header == null || !MessageDigest.isEqual(expectedAuthorization, header.getBytes(StandardCharsets.UTF_8))) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "missing or wrong bearer token");
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.project.ai.shell.web;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control for API asks: a token bucket per client, then a bounded FIFO queue in front of a fixed
+ * number of concurrent generations. Waiting does not hold a thread; the slot is handed to the next waiter
+ * when a running ask finishes. A bucket that has refilled completely carries no state, so the periodic sweep
+ * drops it; the map only holds clients that asked recently.
+ */
+@Component
+public class AskLimiter {
+
+    public static class RejectedException extends RuntimeException {
+        private final boolean rateLimited;
+
+        RejectedException(String message, boolean rateLimited) {
+            super(message);
+            this.rateLimited = rateLimited;
+        }
+
+        public boolean isRateLimited() {
+            return rateLimited;
+        }
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        Bucket(double tokens) {
+            this.tokens = tokens;
+        }
+    }
+
+    private static final class Waiter {
+        private final Sinks.One<Runnable> sink = Sinks.one();
+        private volatile Runnable permit;
+
+        void grant(Runnable permit) {
+            this.permit = permit;
+            sink.tryEmitValue(permit);
+        }
+    }
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final double burst;
+    private final double perSecond;
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Deque<Waiter> waiting = new ArrayDeque<>();
+    private int running;
+
+    public AskLimiter(@Value("${shell.api.max-concurrent:8}") int maxConcurrent,
+                      @Value("${shell.api.max-queued:64}") int maxQueued,
+                      @Value("${shell.api.rate.burst:10}") double burst,
+                      @Value("${shell.api.rate.per-second:0.5}") double perSecond) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.burst = burst;
+        this.perSecond = perSecond;
+    }
+
+    /**
+     * Admit one ask for the client, or throw {@link RejectedException} right away (before any response is
+     * written) when the client is over its rate or the queue is full. The returned Mono emits the permit
+     * once a slot is free; running the permit releases the slot, and so does cancelling before that.
+     */
+    public Mono<Runnable> reserve(String clientId) {
+        if (!takeToken(clientId)) {
+            throw new RejectedException("Rate limit exceeded for " + clientId, true);
+        }
+        Waiter waiter = new Waiter();
+        synchronized (this) {
+            if (running < maxConcurrent) {
+                running++;
+                waiter.grant(permit());
+            } else if (waiting.size() >= maxQueued) {
+                throw new RejectedException("Too many queued requests", false);
+            } else {
+                waiting.add(waiter);
+            }
+        }
+        return waiter.sink.asMono().doOnCancel(() -> cancel(waiter));
+    }
+
+    public synchronized int running() {
+        return running;
+    }
+
+    public synchronized int queued() {
+        return waiting.size();
+    }
+
+    private void cancel(Waiter waiter) {
+        synchronized (this) {
+            if (waiting.remove(waiter)) {
+                return;
+            }
+        }
+        // Already granted: give the slot back (a no-op if the ask already released it)
+        if (waiter.permit != null) {
+            waiter.permit.run();
+        }
+    }
+
+    private Runnable permit() {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                release();
+            }
+        };
+    }
+
+    private void release() {
+        Waiter next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                running--;
+                return;
+            }
+        }
+        // The slot passes straight to the next waiter, running stays the same
+        next.grant(permit());
+    }
+
+    public int clients() {
+        return buckets.size();
+    }
+
+    @Scheduled(fixedDelayString = "${shell.api.rate.sweep-interval:PT1M}")
+    public void evictIdleBuckets() {
+        buckets.values().removeIf(bucket -> {
+            synchronized (bucket) {
+                refill(bucket);
+                return bucket.tokens >= burst;
+            }
+        });
+    }
+
+    private void refill(Bucket bucket) {
+        long now = System.nanoTime();
+        bucket.tokens = Math.min(burst, bucket.tokens + (now - bucket.refilledAt) / 1e9 * perSecond);
+        bucket.refilledAt = now;
+    }
+
+    private boolean takeToken(String clientId) {
+        Bucket bucket = buckets.computeIfAbsent(clientId, id -> new Bucket(burst));
+        synchronized (bucket) {
+            refill(bucket);
+            if (bucket.tokens < 1) {
+                return false;
+            }
+            bucket.tokens--;
+            return true;
+        }
+    }
+}
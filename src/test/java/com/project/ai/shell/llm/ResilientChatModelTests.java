@@ -0,0 +1,194 @@
+package com.project.ai.shell.llm;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResilientChatModelTests {
+
+	private static final Prompt PROMPT = new Prompt("hello");
+	private static final Prompt TOOL_PROMPT = new Prompt("hello", ToolCallingChatOptions.builder().build());
+
+	/**
+	 * Counts executions and answers every tool call with "done"
+	 */
+	private static final class CountingToolCallingManager implements ToolCallingManager {
+		private final AtomicInteger executions = new AtomicInteger();
+
+		@Override
+		public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions chatOptions) {
+			return List.of();
+		}
+
+		@Override
+		public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+			executions.incrementAndGet();
+			List<Message> history = new ArrayList<>(prompt.getInstructions());
+			history.add(chatResponse.getResult().getOutput());
+			history.add(new ToolResponseMessage(List.of(new ToolResponseMessage.ToolResponse("call-1", "tool", "done"))));
+			return ToolExecutionResult.builder().conversationHistory(history).build();
+		}
+	}
+
+	private static ResilientChatModel resilient(StubChatModel stub, Duration timeout, int maxAttempts,
+												int failureThreshold, boolean hedge, Duration hedgeDelay) {
+		return resilient(stub, new CountingToolCallingManager(), timeout, maxAttempts, failureThreshold, hedge, hedgeDelay);
+	}
+
+	private static ResilientChatModel resilient(StubChatModel stub, ToolCallingManager tools, Duration timeout, int maxAttempts,
+												int failureThreshold, boolean hedge, Duration hedgeDelay) {
+		return new ResilientChatModel(stub, tools, new ResilientChatModel.Settings(timeout, timeout, timeout,
+				maxAttempts, Duration.ofMillis(1), failureThreshold, Duration.ofMinutes(1), hedge, hedgeDelay));
+	}
+
+	private static ResilientChatModel resilient(StubChatModel stub) {
+		return resilient(stub, Duration.ofSeconds(5), 3, 10, false, Duration.ZERO);
+	}
+
+	private static String text(ChatResponse response) {
+		return response.getResult().getOutput().getText();
+	}
+
+	@Test
+	void retriesTransientFailure() {
+		StubChatModel stub = new StubChatModel(n -> {
+			if (n == 0) {
+				throw new UncheckedIOException(new IOException("connection reset"));
+			}
+			return "ok";
+		});
+
+		assertEquals("ok", text(resilient(stub).call(PROMPT)));
+		assertEquals(2, stub.count());
+	}
+
+	@Test
+	void doesNotRetryPermanentFailure() {
+		StubChatModel stub = new StubChatModel(n -> {
+			throw new IllegalArgumentException("400 invalid argument");
+		});
+
+		assertThrows(IllegalArgumentException.class, () -> resilient(stub).call(PROMPT));
+		assertEquals(1, stub.count());
+	}
+
+	@Test
+	void slowCallTimesOutAndIsRetried() {
+		AtomicBoolean abandoned = new AtomicBoolean();
+		StubChatModel stub = new StubChatModel(n -> {
+			if (n == 0) {
+				abandoned.set(StubChatModel.sleep(1000));
+			}
+			return "attempt " + n;
+		});
+
+		ResilientChatModel model = resilient(stub, Duration.ofMillis(100), 3, 10, false, Duration.ZERO);
+		assertEquals("attempt 1", text(model.call(PROMPT)));
+		StubChatModel.sleep(200);
+		assertTrue(abandoned.get(), "the timed-out attempt should have been interrupted");
+	}
+
+	@Test
+	void toolsRunOnceWhenLaterRoundTripIsRetried() {
+		StubChatModel stub = new StubChatModel(n -> switch (n) {
+			case 0 -> "tool:patchFile";
+			case 1 -> throw new UncheckedIOException(new IOException("connection reset"));
+			default -> "answer";
+		});
+		CountingToolCallingManager tools = new CountingToolCallingManager();
+
+		ResilientChatModel model = resilient(stub, tools, Duration.ofSeconds(5), 3, 10, false, Duration.ZERO);
+		assertEquals("answer", text(model.call(TOOL_PROMPT)));
+		assertEquals(1, tools.executions.get());
+		assertEquals(3, stub.count());
+	}
+
+	@Test
+	void streamRunsToolsBetweenRoundTrips() {
+		StubChatModel stub = new StubChatModel(n -> n == 0 ? "tool:readFile" : "answer");
+		CountingToolCallingManager tools = new CountingToolCallingManager();
+
+		List<String> chunks = resilient(stub, tools, Duration.ofSeconds(5), 3, 10, false, Duration.ZERO)
+				.stream(TOOL_PROMPT)
+				.filter(response -> !response.hasToolCalls())
+				.map(ResilientChatModelTests::text)
+				.collectList()
+				.block();
+		assertEquals(List.of("answer"), chunks);
+		assertEquals(1, tools.executions.get());
+	}
+
+	@Test
+	void hedgeAnswersBeforeSlowCall() {
+		StubChatModel stub = new StubChatModel(n -> {
+			if (n == 0) {
+				StubChatModel.sleep(2000);
+			}
+			return "attempt " + n;
+		});
+
+		ResilientChatModel model = resilient(stub, Duration.ofSeconds(5), 1, 10, true, Duration.ofMillis(50));
+		long start = System.nanoTime();
+		assertEquals("attempt 1", text(model.call(PROMPT)));
+		assertTrue((System.nanoTime() - start) / 1_000_000 < 1000);
+	}
+
+	@Test
+	void circuitOpensAfterConsecutiveFailures() {
+		StubChatModel stub = new StubChatModel(n -> {
+			throw new IllegalStateException("503 UNAVAILABLE");
+		});
+		ResilientChatModel model = resilient(stub, Duration.ofSeconds(5), 1, 2, false, Duration.ZERO);
+
+		assertThrows(IllegalStateException.class, () -> model.call(PROMPT));
+		assertThrows(IllegalStateException.class, () -> model.call(PROMPT));
+		assertThrows(CircuitBreaker.OpenException.class, () -> model.call(PROMPT));
+		assertEquals(2, stub.count());
+	}
+
+	@Test
+	void permanentFailuresDoNotOpenCircuit() {
+		StubChatModel stub = new StubChatModel(n -> {
+			throw new IllegalArgumentException("400 invalid argument");
+		});
+		ResilientChatModel model = resilient(stub, Duration.ofSeconds(5), 1, 2, false, Duration.ZERO);
+
+		for (int i = 0; i < 3; i++) {
+			assertThrows(IllegalArgumentException.class, () -> model.call(PROMPT));
+		}
+		assertEquals(3, stub.count());
+	}
+
+	@Test
+	void streamIsRetriedOnlyBeforeFirstChunk() {
+		StubChatModel stub = new StubChatModel(n -> "unused", n -> n == 0
+				? Flux.error(new UncheckedIOException(new IOException("reset before first chunk")))
+				: Flux.just("a", "b").concatWith(Flux.error(new UncheckedIOException(new IOException("reset")))));
+
+		List<String> chunks = new ArrayList<>();
+		assertThrows(UncheckedIOException.class, () -> resilient(stub).stream(PROMPT)
+				.doOnNext(response -> chunks.add(text(response)))
+				.blockLast());
+		assertEquals(List.of("a", "b"), chunks);
+		assertEquals(2, stub.count());
+	}
+}
@@ -0,0 +1,67 @@
+package com.project.ai.shell.llm;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Offline chat model: answers the n-th call (0-based) with whatever the test's function returns; an answer
+ * "tool:name" is a call of that tool instead of text
+ */
+class StubChatModel implements ChatModel {
+
+	private final IntFunction<String> calls;
+	private final IntFunction<Flux<String>> streams;
+	private final AtomicInteger count = new AtomicInteger();
+
+	StubChatModel(IntFunction<String> calls) {
+		this(calls, n -> Flux.just(calls.apply(n)));
+	}
+
+	StubChatModel(IntFunction<String> calls, IntFunction<Flux<String>> streams) {
+		this.calls = calls;
+		this.streams = streams;
+	}
+
+	static ChatResponse response(String text) {
+		if (text.startsWith("tool:")) {
+			AssistantMessage.ToolCall call = new AssistantMessage.ToolCall("call-1", "function", text.substring(5), "{}");
+			return new ChatResponse(List.of(new Generation(AssistantMessage.builder().content("").toolCalls(List.of(call)).build())));
+		}
+		return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+	}
+
+	/**
+	 * Sleep, and tell whether the sleep was interrupted (the caller gave up on this call)
+	 */
+	static boolean sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return true;
+		}
+	}
+
+	@Override
+	public ChatResponse call(Prompt prompt) {
+		return response(calls.apply(count.getAndIncrement()));
+	}
+
+	@Override
+	public Flux<ChatResponse> stream(Prompt prompt) {
+		return Flux.defer(() -> streams.apply(count.getAndIncrement())).map(StubChatModel::response);
+	}
+
+	int count() {
+		return count.get();
+	}
+}
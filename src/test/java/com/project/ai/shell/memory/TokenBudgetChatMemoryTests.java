@@ -0,0 +1,71 @@
+package com.project.ai.shell.memory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBudgetChatMemoryTests {
+
+	@Test
+	void keepsNewestMessagesWithinBudget() {
+		TokenBudgetChatMemory memory = new TokenBudgetChatMemory(new InMemoryChatMemoryRepository(), 100);
+		for (int i = 0; i < 20; i++) {
+			memory.add("c", List.of(new UserMessage("question " + i + " ".repeat(40)),
+					new AssistantMessage("answer " + i + " ".repeat(40))));
+		}
+
+		List<Message> kept = memory.get("c");
+		int tokens = kept.stream().mapToInt(TokenBudgetChatMemory::estimateTokens).sum();
+		assertTrue(tokens <= 100);
+		assertEquals(MessageType.USER, kept.get(0).getMessageType());
+		assertTrue(kept.get(kept.size() - 1).getText().startsWith("answer 19"));
+	}
+
+	@Test
+	void systemMessageIsAlwaysKept() {
+		TokenBudgetChatMemory memory = new TokenBudgetChatMemory(new InMemoryChatMemoryRepository(), 30);
+		memory.add("c", List.of(new SystemMessage("rules"), new UserMessage("x".repeat(400))));
+		memory.add("c", List.of(new UserMessage("short")));
+
+		List<Message> kept = memory.get("c");
+		assertEquals(2, kept.size());
+		assertEquals(MessageType.SYSTEM, kept.get(0).getMessageType());
+		assertEquals("short", kept.get(1).getText());
+	}
+
+	@Test
+	void oversizedLatestTurnKeepsTruncatedQuestionAndNewestToolExchange() {
+		TokenBudgetChatMemory memory = new TokenBudgetChatMemory(new InMemoryChatMemoryRepository(), 200);
+		memory.add("c", List.of(new UserMessage("earlier"), new AssistantMessage("done")));
+		memory.add("c", List.of(new UserMessage("q".repeat(4000))));
+		for (int i = 0; i < 3; i++) {
+			memory.add("c", List.of(
+					AssistantMessage.builder().content("").toolCalls(List.of(
+							new AssistantMessage.ToolCall("call-" + i, "function", "readFile", "{}"))).build(),
+					new ToolResponseMessage(List.of(
+							new ToolResponseMessage.ToolResponse("call-" + i, "readFile", "r".repeat(200))))));
+		}
+
+		List<Message> kept = memory.get("c");
+		assertEquals(MessageType.USER, kept.get(0).getMessageType());
+		assertTrue(kept.get(0).getText().startsWith("qqq"));
+		assertTrue(kept.get(0).getText().length() < 4000);
+		assertEquals(MessageType.ASSISTANT, kept.get(kept.size() - 2).getMessageType());
+		assertEquals("call-2", ((ToolResponseMessage) kept.get(kept.size() - 1)).getResponses().get(0).id());
+		for (int i = 1; i < kept.size(); i++) {
+			if (kept.get(i) instanceof ToolResponseMessage) {
+				assertTrue(((AssistantMessage) kept.get(i - 1)).hasToolCalls());
+			}
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.project.ai.shell.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IgnoreMatcherTests {
+
+	private final Path root = Path.of("/project");
+
+	@Test
+	void defaultDirectoriesAreIgnoredAtAnyDepth() {
+		IgnoreMatcher matcher = new IgnoreMatcher(root, List.of());
+
+		assertTrue(matcher.isIgnoredDirectory(root.resolve("target")));
+		assertTrue(matcher.isIgnoredDirectory(root.resolve("web/node_modules")));
+		assertFalse(matcher.isIgnoredDirectory(root.resolve("src/main")));
+		assertTrue(matcher.isIgnoredFile(root.resolve("src/Foo.class")));
+		assertFalse(matcher.includes(root.resolve(".git/config")));
+	}
+
+	@Test
+	void gitignorePatternsFollowGitSemantics() {
+		IgnoreMatcher matcher = new IgnoreMatcher(root, List.of(
+				"# comment",
+				"*.log",
+				"!keep.log",
+				"/build/",
+				"docs/**/*.tmp"));
+
+		assertTrue(matcher.isIgnoredFile(root.resolve("shell.log")));
+		assertTrue(matcher.isIgnoredFile(root.resolve("a/b/debug.log")));
+		assertFalse(matcher.isIgnoredFile(root.resolve("a/keep.log")));
+
+		assertTrue(matcher.isIgnoredDirectory(root.resolve("build")));
+		assertFalse(matcher.isIgnoredDirectory(root.resolve("src/build")));
+		assertFalse(matcher.isIgnoredFile(root.resolve("build")));
+
+		assertTrue(matcher.isIgnoredFile(root.resolve("docs/x.tmp")));
+		assertTrue(matcher.isIgnoredFile(root.resolve("docs/a/b/x.tmp")));
+		assertFalse(matcher.isIgnoredFile(root.resolve("src/x.tmp")));
+		assertFalse(matcher.includes(root.resolve("build/out.txt")));
+	}
+
+}
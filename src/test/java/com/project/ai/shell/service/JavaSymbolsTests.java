@@ -0,0 +1,99 @@
+package com.project.ai.shell.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavaSymbolsTests {
+
+	private static final String SOURCE = """
+			package demo;
+
+			import java.util.List;
+
+			/** Calls {@code ignored()} in a comment */
+			public class Outer {
+				private final List<String> names = List.of("inner()");
+
+				public Outer(int size) {
+					helper(size);
+				}
+
+				@Override
+				public String toString() {
+					return helper(1) + Inner.make();
+				}
+
+				private String helper(int value) {
+					return String.valueOf(value);
+				}
+
+				static class Inner {
+					static String make() {
+						return "x";
+					}
+				}
+
+				enum Color { RED, GREEN }
+
+				record Point(int x, int y) {
+					Point {
+						check(x);
+					}
+				}
+			}
+			""";
+
+	private static List<String> declarations(JavaSymbols.FileSymbols symbols) {
+		return symbols.symbols().stream()
+				.map(symbol -> symbol.kind() + " " + symbol.qualifiedName())
+				.toList();
+	}
+
+	@Test
+	void collectsDeclarations() {
+		JavaSymbols.FileSymbols symbols = JavaSymbols.parse("Outer.java", SOURCE);
+
+		assertEquals("demo", symbols.packageName());
+		assertEquals(List.of("java.util.List"), symbols.imports());
+		List<String> declarations = declarations(symbols);
+		assertTrue(declarations.contains("CLASS Outer"));
+		assertTrue(declarations.contains("FIELD Outer.names"));
+		assertTrue(declarations.contains("CONSTRUCTOR Outer.Outer"));
+		assertTrue(declarations.contains("METHOD Outer.toString"));
+		assertTrue(declarations.contains("METHOD Outer.helper"));
+		assertTrue(declarations.contains("CLASS Outer.Inner"));
+		assertTrue(declarations.contains("METHOD Outer.Inner.make"));
+		assertTrue(declarations.contains("ENUM Outer.Color"));
+		assertTrue(declarations.contains("ENUM_CONSTANT Outer.Color.RED"));
+		assertTrue(declarations.contains("ENUM_CONSTANT Outer.Color.GREEN"));
+		assertTrue(declarations.contains("RECORD Outer.Point"));
+	}
+
+	@Test
+	void recordsCallsOutsideCommentsAndStrings() {
+		JavaSymbols.FileSymbols symbols = JavaSymbols.parse("Outer.java", SOURCE);
+
+		assertEquals(Set.of("helper", "make"), symbols.calls().get("Outer.toString"));
+		assertTrue(symbols.calls().get("Outer.Outer").contains("helper"));
+		assertFalse(symbols.identifiers().contains("ignored"));
+		assertFalse(symbols.identifiers().contains("inner"));
+	}
+
+	@Test
+	void reportsDeclarationLines() {
+		JavaSymbols.FileSymbols symbols = JavaSymbols.parse("Outer.java", SOURCE);
+
+		JavaSymbols.Symbol helper = symbols.symbols().stream()
+				.filter(symbol -> symbol.name().equals("helper"))
+				.findFirst()
+				.orElseThrow();
+		assertEquals(18, helper.line());
+		assertEquals("private String helper(int value)", helper.signature());
+	}
+}
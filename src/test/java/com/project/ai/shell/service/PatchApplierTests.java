@@ -0,0 +1,88 @@
+package com.project.ai.shell.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PatchApplierTests {
+
+	private final PatchApplier applier = new PatchApplier();
+
+	private static final String ORIGINAL = """
+			class A {
+			    int a = 1;
+			    int b = 2;
+			    int c = 3;
+			}
+			""";
+
+	@Test
+	void searchReplaceBlocksReplaceUniqueText() {
+		PatchApplier.Result result = applier.apply(ORIGINAL, """
+				<<<<<<< SEARCH
+				    int b = 2;
+				=======
+				    int b = 20;
+				    int bb = 21;
+				>>>>>>> REPLACE
+				""");
+
+		assertEquals(1, result.edits());
+		assertEquals("""
+				class A {
+				    int a = 1;
+				    int b = 20;
+				    int bb = 21;
+				    int c = 3;
+				}
+				""", result.content());
+	}
+
+	@Test
+	void searchTextMustBeUnique() {
+		assertThrows(IllegalArgumentException.class, () -> applier.apply(ORIGINAL, """
+				<<<<<<< SEARCH
+				    int
+				=======
+				    long
+				>>>>>>> REPLACE
+				"""));
+	}
+
+	@Test
+	void unifiedDiffHunksApplyEvenWithShiftedLineNumbers() {
+		PatchApplier.Result result = applier.apply(ORIGINAL, """
+				--- a/A.java
+				+++ b/A.java
+				@@ -5,3 +5,3 @@
+				     int b = 2;
+				-    int c = 3;
+				+    int c = 30;
+				 }
+				""");
+
+		assertEquals(1, result.edits());
+		assertEquals(ORIGINAL.replace("int c = 3;", "int c = 30;"), result.content());
+	}
+
+	@Test
+	void hunkIsBoundedByItsHeaderCounts() {
+		String original = "-- a\nx\n";
+		PatchApplier.Result result = applier.apply(original, """
+				@@ -1,2 +1,1 @@
+				--- a
+				 x
+				""");
+
+		assertEquals("x\n", result.content());
+	}
+
+	@Test
+	void insertionWithoutContextIsNotMoved() {
+		assertThrows(IllegalArgumentException.class, () -> applier.apply(ORIGINAL, """
+				@@ -9,0 +10,1 @@
+				+// end
+				"""));
+	}
+}
@@ -0,0 +1,36 @@
+package com.project.ai.shell.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionRegistryTests {
+
+	@Test
+	void conversationIdsFitTheMemoryColumn() {
+		List<String> ids = List.of(
+				SessionRegistry.DEFAULT_SESSION,
+				"batch-user-024-" + UUID.randomUUID(),
+				"batch-" + "x".repeat(200) + "-" + UUID.randomUUID(),
+				"api:2001:db8:85a3:0:0:8a2e:370:7334%eth0:a-rather-long-session-name",
+				"api:user-someone@example.com:default");
+
+		for (String id : ids) {
+			assertTrue(SessionRegistry.conversationId(id).length() <= SessionRegistry.MAX_CONVERSATION_ID, id);
+		}
+	}
+
+	@Test
+	void shortIdsAreKeptAndLongOnesHashedStably() {
+		assertEquals(SessionRegistry.DEFAULT_SESSION, SessionRegistry.conversationId(SessionRegistry.DEFAULT_SESSION));
+
+		String batch = "batch-job-1-" + UUID.randomUUID();
+		assertEquals(SessionRegistry.conversationId(batch), SessionRegistry.conversationId(batch));
+		assertNotEquals(SessionRegistry.conversationId(batch), SessionRegistry.conversationId(batch + "x"));
+	}
+}